@@ -0,0 +1,21 @@
+package com.clearsolutions.users.benchmark;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records every SQL string Hibernate prepares. Registered by {@link UserPatchSqlReport} through
+ * hibernate.session_factory.statement_inspector.
+ */
+public class SqlRecorder implements StatementInspector {
+
+    static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,143 @@
+package com.clearsolutions.users.benchmark;
+
+import com.clearsolutions.users.UsersApplication;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.service.UserService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop HTTP load test of the web tier with platform threads, with virtual threads and on the reactive stack.
+ * Each mode boots the application on a random port, then {@code concurrency} clients call
+ * GET /users/{id} and a one-year GET /users age range back to back for {@code seconds}; latency percentiles are printed per mode.
+ * <pre>
+ * mvn -P benchmark,java21 test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.clearsolutions.users.benchmark.UserApiLoadTest -Dexec.args="1000 30"
+ * </pre>
+ */
+public class UserApiLoadTest {
+
+    private static final int USERS = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        for (Mode mode : Mode.values()) {
+            System.out.println(run(mode, concurrency, seconds));
+        }
+        System.exit(0);
+    }
+
+    private static String run(Mode mode, int concurrency, int seconds) throws Exception {
+        String database = "load-" + mode.name().toLowerCase();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UsersApplication.class)
+                .profiles(mode == Mode.REACTIVE ? new String[]{"reactive"} : new String[0])
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--reactive.r2dbc-url=r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1",
+                        "--reactive.username=sa",
+                        "--reactive.password=",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--virtual-threads.enabled=" + (mode == Mode.VIRTUAL))) {
+
+            // seeded through JPA in every mode; the reactive stack reads the same tables
+            seed(context.getBean(UserService.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port + "/users";
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+            // warm up for a fifth of the measured time, then measure
+            drive(client, baseUrl, concurrency, Math.max(1, seconds / 5));
+            long[] latencies = drive(client, baseUrl, concurrency, seconds);
+
+            Arrays.sort(latencies);
+            return String.format("%-8s concurrency=%d requests=%d throughput=%.0f/s p50=%.1fms p99=%.1fms max=%.1fms",
+                    mode.name().toLowerCase(), concurrency, latencies.length, latencies.length / (double) seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+        }
+    }
+
+    private static long[] drive(HttpClient client, String baseUrl, int concurrency, int seconds) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        List<Future<long[]>> results = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            results.add(clients.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int age = random.nextInt(18, 60);
+                    URI uri = random.nextBoolean()
+                            ? URI.create(baseUrl + "/" + random.nextInt(1, USERS + 1))
+                            : URI.create(baseUrl + "?from=" + age + "&to=" + age);
+
+                    long start = System.nanoTime();
+                    client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding());
+                    if (count == latencies.length){
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        List<long[]> all = new ArrayList<>(concurrency);
+        int total = 0;
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            all.add(latencies);
+            total += latencies.length;
+        }
+        clients.shutdown();
+
+        long[] merged = new long[total];
+        int offset = 0;
+        for (long[] latencies : all) {
+            System.arraycopy(latencies, 0, merged, offset, latencies.length);
+            offset += latencies.length;
+        }
+        return merged;
+    }
+
+    private static void seed(UserService userService) {
+        for (int i = 1; i <= USERS; i++) {
+            userService.createUser(UserCreateRequest.builder()
+                    .email("user" + i + "@domain.com")
+                    .firstName("John")
+                    .lastName("Doe")
+                    .birthday(LocalDate.now().minusYears(18).minusDays(i * 7L))
+                    .build());
+        }
+    }
+
+    private enum Mode {
+        PLATFORM, VIRTUAL, REACTIVE
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * sorted.length))] / 1e6;
+    }
+}
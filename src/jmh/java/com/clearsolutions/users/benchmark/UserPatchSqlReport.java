@@ -0,0 +1,70 @@
+package com.clearsolutions.users.benchmark;
+
+import com.clearsolutions.users.UsersApplication;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.service.UserService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Prints the statements a PATCH that changes one field sends to the database, with the SQL text size and the
+ * number of bound parameters, i.e. what goes over the wire besides the parameter values.
+ * <pre>
+ * mvn -P benchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.clearsolutions.users.benchmark.UserPatchSqlReport
+ * </pre>
+ */
+public class UserPatchSqlReport {
+
+    public static void main(String[] args) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UsersApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("prod")
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:patch-report;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--spring.jpa.properties.hibernate.session_factory.statement_inspector=" + SqlRecorder.class.getName())) {
+
+            UserService userService = context.getBean(UserService.class);
+            userService.createUser(UserCreateRequest.builder()
+                    .email("johndoe@domain.com")
+                    .firstName("John")
+                    .lastName("Doe")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .city("Kyiv")
+                    .phone("+380501234567")
+                    .build());
+            User user = userService.getUserByEmail("johndoe@domain.com");
+
+            // first PATCH warms the caches, the second one is measured
+            patchFirstName(userService, user, "Jane");
+            SqlRecorder.STATEMENTS.clear();
+            patchFirstName(userService, user, "Joan");
+
+            int bytes = 0;
+            int parameters = 0;
+            for (String sql : SqlRecorder.STATEMENTS) {
+                int statementParameters = (int) sql.chars().filter(c -> c == '?').count();
+                bytes += sql.getBytes(StandardCharsets.UTF_8).length;
+                parameters += statementParameters;
+                System.out.printf("%4d bytes %2d params  %s%n", sql.getBytes(StandardCharsets.UTF_8).length, statementParameters, sql);
+            }
+            System.out.printf("PATCH first_name: statements=%d sqlBytes=%d boundParameters=%d%n",
+                    SqlRecorder.STATEMENTS.size(), bytes, parameters);
+        }
+        System.exit(0);
+    }
+
+    private static void patchFirstName(UserService userService, User user, String firstName) {
+        userService.updateUser(user.getId(), UserUpdateRequest.builder().firstName(firstName).build());
+    }
+}
@@ -0,0 +1,104 @@
+package com.clearsolutions.users.benchmark;
+
+import com.clearsolutions.users.user.index.UserSearchIndex;
+import com.clearsolutions.users.user.model.entity.Address;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.properties.UserSearchProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link UserSearchIndex} queries over {@code users} synthetic users held in memory
+ * (mvn -P benchmark verify -Djmh.args="UserSearchBenchmark -p users=10000000").
+ * Names and cities are drawn from generated vocabularies, so common prefixes match many documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class UserSearchBenchmark {
+
+    private static final String[] SYLLABLES = {"an", "bo", "da", "el", "jo", "ka", "li", "ma", "ni", "ol", "ra", "se", "ta", "vi", "yu"};
+    private static final int BIRTHDAY_SPREAD_DAYS = 82 * 365;
+    private static final int LIMIT = 20;
+
+    @Param({"1000000"})
+    public int users;
+
+    private UserSearchIndex userSearchIndex;
+    private LocalDate minBirthday;
+    private LocalDate maxBirthday;
+    private String knownEmail;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserSearchProperties properties = new UserSearchProperties();
+        properties.setEnabled(true);
+        userSearchIndex = new UserSearchIndex(null, null, properties, null);
+
+        Random random = new Random(42);
+        LocalDate youngest = LocalDate.now().minusYears(18);
+        for (long id = 1; id <= users; id++) {
+            String firstName = word(random, 2);
+            String lastName = word(random, 3);
+            String email = firstName + "." + lastName + id + "@domain.com";
+            userSearchIndex.update(User.builder()
+                    .id(id)
+                    .email(email)
+                    .firstName(capitalize(firstName))
+                    .lastName(capitalize(lastName))
+                    .birthday(youngest.minusDays(random.nextInt(BIRTHDAY_SPREAD_DAYS)))
+                    .address(Address.builder().city(capitalize(word(random, 2))).build())
+                    .build());
+            if (id == users / 2){
+                knownEmail = email;
+            }
+        }
+
+        minBirthday = LocalDate.now().minusYears(123);
+        maxBirthday = youngest;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        userSearchIndex.destroy();
+    }
+
+    @Benchmark
+    public List<Long> shortPrefix() {
+        return userSearchIndex.search("jo", minBirthday, maxBirthday, LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> firstAndLastName() {
+        return userSearchIndex.search("joan kalira", minBirthday, maxBirthday, LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> emailPrefix() {
+        return userSearchIndex.search(knownEmail.substring(0, knownEmail.indexOf('@')), minBirthday, maxBirthday, LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> prefixInAgeRange() {
+        return userSearchIndex.search("ma", LocalDate.now().minusYears(31), LocalDate.now().minusYears(30), LIMIT);
+    }
+
+    private static String word(Random random, int syllables) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,95 @@
+package com.clearsolutions.users.benchmark;
+
+import com.clearsolutions.users.config.EpochDayModule;
+import com.clearsolutions.users.user.model.entity.Address;
+import com.clearsolutions.users.user.model.entity.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a listing of {@code users} users with the JSON mapper of the API (SNAKE_CASE, dd-MM-yyyy)
+ * against the CBOR one (epoch-day birthdays), configured as in CborConfig. Payload sizes are printed at setup.
+ * (mvn -P benchmark verify -Djmh.args="UserSerializationBenchmark")
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSerializationBenchmark {
+
+    private static final TypeReference<List<User>> USERS = new TypeReference<>() {
+    };
+
+    @Param({"1000"})
+    public int users;
+
+    private ObjectMapper jsonMapper;
+    private ObjectMapper cborMapper;
+
+    private List<User> listing;
+    private byte[] json;
+    private byte[] cbor;
+
+    @Setup
+    public void setUp() throws IOException {
+        jsonMapper = Jackson2ObjectMapperBuilder.json()
+                .propertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+                .build();
+        cborMapper = Jackson2ObjectMapperBuilder.json()
+                .propertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+                .factory(CBORFactory.builder().enable(CBORGenerator.Feature.STRINGREF).build())
+                .postConfigurer(objectMapper -> objectMapper.registerModule(new EpochDayModule()))
+                .build();
+
+        listing = new ArrayList<>(users);
+        for (long i = 1; i <= users; i++) {
+            listing.add(User.builder()
+                    .id(i)
+                    .email("user" + i + "@domain.com")
+                    .firstName("Olena")
+                    .lastName("Kovalenko")
+                    .birthday(LocalDate.of(1950, 1, 1).plusDays(i * 13))
+                    .address(Address.builder().country("Ukraine").city("Kyiv").street("Khreshchatyk").houseNumber(i).apartmentNumber(i % 100).build())
+                    .phone("+380501234567")
+                    .build());
+        }
+
+        json = jsonMapper.writeValueAsBytes(listing);
+        cbor = cborMapper.writeValueAsBytes(listing);
+        System.out.printf("%n%d users: json=%d bytes cbor=%d bytes (%.0f%%)%n",
+                users, json.length, cbor.length, 100.0 * cbor.length / json.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return jsonMapper.writeValueAsBytes(listing);
+    }
+
+    @Benchmark
+    public byte[] encodeCbor() throws IOException {
+        return cborMapper.writeValueAsBytes(listing);
+    }
+
+    @Benchmark
+    public List<User> decodeJson() throws IOException {
+        return jsonMapper.readValue(json, USERS);
+    }
+
+    @Benchmark
+    public List<User> decodeCbor() throws IOException {
+        return cborMapper.readValue(cbor, USERS);
+    }
+}
@@ -0,0 +1,126 @@
+package com.clearsolutions.users.benchmark;
+
+import com.clearsolutions.users.UsersApplication;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.model.response.UserPage;
+import com.clearsolutions.users.user.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UserService hot paths against an in-memory H2 database seeded with {@code rows} users
+ * (mvn -P benchmark verify -Djmh.args="UserServiceBenchmark -p rows=1000000").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class UserServiceBenchmark {
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+    private static final int BIRTHDAY_SPREAD_DAYS = 82 * 365;
+
+    @Param({"10000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private ObjectMapper objectMapper;
+
+    private final AtomicLong emailSequence = new AtomicLong();
+    private List<User> narrowRange;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(UsersApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        userService = context.getBean(UserService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        seed(context.getBean(JdbcTemplate.class));
+        narrowRange = userService.getUsersByAgeRange(30, 31);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String createUser() {
+        return userService.createUser(UserCreateRequest.builder()
+                .email("bench" + emailSequence.incrementAndGet() + "@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .city("Kyiv")
+                .build());
+    }
+
+    @Benchmark
+    public String updateUser() {
+        long id = ThreadLocalRandom.current().nextLong(1, rows + 1);
+        return userService.updateUser(id, UserUpdateRequest.builder()
+                .email("user" + id + "@domain.com")
+                .firstName("Jane")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .city("Lviv")
+                .build());
+    }
+
+    @Benchmark
+    public List<User> getUsersByAgeRangeNarrow() {
+        return userService.getUsersByAgeRange(30, 31);
+    }
+
+    @Benchmark
+    public UserPage getUsersPageByAgeRange() {
+        return userService.getUsersPageByAgeRange(18, 122, null, 50);
+    }
+
+    @Benchmark
+    public byte[] serializeUsers() throws Exception {
+        return objectMapper.writeValueAsBytes(narrowRange);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        LocalDate youngest = LocalDate.now().minusYears(18);
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+
+        for (long id = 1; id <= rows; id++) {
+            LocalDate birthday = youngest.minusDays((id * 7919) % BIRTHDAY_SPREAD_DAYS);
+            batch.add(new Object[]{id, "user" + id + "@domain.com", "John", "Doe", Date.valueOf(birthday), "Ukraine", "Kyiv", "+380765432105"});
+
+            if (batch.size() == SEED_BATCH_SIZE || id == rows) {
+                jdbcTemplate.batchUpdate("insert into users (id, email, first_name, last_name, birthday, country, city, phone) values (?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+
+        // pooled optimizer hands out (value - allocationSize, value], keep it clear of the seeded ids
+        jdbcTemplate.execute("alter sequence users_seq restart with " + (rows + 100));
+    }
+}
@@ -0,0 +1,69 @@
+package com.clearsolutions.users.benchmark;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.model.properties.UserProperties;
+import com.clearsolutions.users.user.validator.UserValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Validations per second of the previous inline UserService checks ({@code legacy}) against {@link UserValidator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserValidatorBenchmark {
+
+    @Param({"valid", "invalid"})
+    public String input;
+
+    private UserProperties userProperties;
+    private UserValidator userValidator;
+
+    private String email;
+    private String firstName;
+    private LocalDate birthday;
+
+    @Setup
+    public void setUp() {
+        userProperties = new UserProperties();
+        userProperties.setUserEmailRegex("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+        userProperties.setUserMinAge(18);
+        userValidator = new UserValidator(userProperties);
+
+        boolean valid = input.equals("valid");
+        email = valid ? "johndoe@domain.com" : "johndoe";
+        firstName = valid ? "John" : null;
+        birthday = valid ? LocalDate.of(1999, 2, 22) : LocalDate.now().minusYears(17);
+    }
+
+    @Benchmark
+    public Object legacy() {
+        try {
+            if (email.isBlank() || !Pattern.compile(userProperties.getUserEmailRegex()).matcher(email).matches()){
+                throw new BadRequestException("Invalid email!");
+            }
+            if (firstName == null || firstName.isEmpty()){
+                throw new BadRequestException("First name cannot be null!");
+            }
+            if (birthday.isAfter(LocalDate.now().minusYears(userProperties.getUserMinAge()))){
+                throw new BadRequestException("User must be 18!");
+            }
+            return null;
+        } catch (BadRequestException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public List<String> validator() {
+        return userValidator.validate(email, firstName, "Doe", birthday);
+    }
+}
@@ -1,7 +1,7 @@
-package com.clearsolutions.users.advice.exceptions;
-
-public class BadRequestException extends RuntimeException {
-    public BadRequestException(String exception) {
-        super(exception);
-    }
-}
+package com.clearsolutions.users.advice.exceptions;
+
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String exception) {
+        super(exception);
+    }
+}
@@ -0,0 +1,7 @@
+package com.clearsolutions.users.advice.exceptions;
+
+public class TooManyRequestsException extends RuntimeException {
+    public TooManyRequestsException(String exception) {
+        super(exception);
+    }
+}
@@ -0,0 +1,40 @@
+package com.clearsolutions.users.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Writes and reads every LocalDate as its epoch day number, overriding the dd-MM-yyyy {@code @JsonFormat}
+ * of the JSON API; any other token is rejected. Registered on the binary (CBOR) mapper only.
+ */
+public class EpochDayModule extends SimpleModule {
+
+    public EpochDayModule() {
+        super("EpochDayModule");
+        addSerializer(LocalDate.class, new StdSerializer<>(LocalDate.class) {
+            @Override
+            public void serialize(LocalDate value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                generator.writeNumber(value.toEpochDay());
+            }
+        });
+        addDeserializer(LocalDate.class, new StdDeserializer<>(LocalDate.class) {
+            @Override
+            public LocalDate deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                // getValueAsLong would read any other token, a dd-MM-yyyy string included, as day 0
+                if (!parser.hasToken(JsonToken.VALUE_NUMBER_INT)){
+                    return (LocalDate) context.handleUnexpectedToken(LocalDate.class, parser);
+                }
+                return LocalDate.ofEpochDay(parser.getLongValue());
+            }
+        });
+    }
+}
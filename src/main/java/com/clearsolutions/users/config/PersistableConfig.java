@@ -0,0 +1,27 @@
+package com.clearsolutions.users.config;
+
+import org.hibernate.Interceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Lets a {@link Persistable} entity tell Hibernate whether it is new. Hibernate takes an entity with a generated id
+ * that is already set for a detached one and refuses to persist it, while sharded users get their id before they are saved.
+ */
+@Configuration
+public class PersistableConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer persistableInterceptorCustomizer() {
+        Interceptor interceptor = new Interceptor() {
+            @Override
+            public Boolean isTransient(Object entity) {
+                return entity instanceof Persistable<?> persistable ? persistable.isNew() : null;
+            }
+        };
+        return properties -> properties.put(AvailableSettings.INTERCEPTOR, interceptor);
+    }
+}
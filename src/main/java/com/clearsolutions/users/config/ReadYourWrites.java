@@ -0,0 +1,73 @@
+package com.clearsolutions.users.config;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Read-your-writes state of the current thread for {@link ReplicaRoutingDataSource}. A request of a client carries
+ * the time of that client's last write, started by {@link ReadYourWritesFilter}; its writes are reported back so the
+ * client carries them into its next requests. Loads of the in-process caches serve every client instead,
+ * so they are marked with {@link #sharedLoad} and read from the primary after any write of this node.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<ReadYourWrites> CLIENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> SHARED_LOAD = new ThreadLocal<>();
+
+    private final Consumer<Instant> onFirstWrite;
+    private Instant lastWrite;
+    private boolean written;
+
+    private ReadYourWrites(Instant lastWrite, Consumer<Instant> onFirstWrite) {
+        this.lastWrite = lastWrite;
+        this.onFirstWrite = onFirstWrite;
+    }
+
+    /**
+     * @param lastWrite time of the client's last write, null when unknown
+     * @param onFirstWrite called with the time of the first write of this request
+     */
+    public static void start(Instant lastWrite, Consumer<Instant> onFirstWrite) {
+        CLIENT.set(new ReadYourWrites(lastWrite, onFirstWrite));
+    }
+
+    public static void stop() {
+        CLIENT.remove();
+    }
+
+    /**
+     * Runs a load of an in-process cache, whose result every client reads.
+     */
+    public static <T> T sharedLoad(Supplier<T> load) {
+        Boolean outer = SHARED_LOAD.get();
+        SHARED_LOAD.set(Boolean.TRUE);
+        try {
+            return load.get();
+        } finally {
+            if (outer == null){
+                SHARED_LOAD.remove();
+            }
+        }
+    }
+
+    static ReadYourWrites client() {
+        return CLIENT.get();
+    }
+
+    static boolean isSharedLoad() {
+        return SHARED_LOAD.get() != null;
+    }
+
+    Instant lastWrite() {
+        return lastWrite;
+    }
+
+    void written(Instant at) {
+        lastWrite = at;
+        if (!written){
+            written = true;
+            onFirstWrite.accept(at);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.clearsolutions.users.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Carries the time of a client's last write between its requests in the last-write cookie, so that client,
+ * and only that client, reads from the primary for stickiness after it wrote, see {@link ReplicaRoutingDataSource}.
+ * The cookie holds epoch milliseconds and expires with the stickiness; a value that does not parse is ignored.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "last-write";
+
+    private final Duration stickiness;
+
+    public ReadYourWritesFilter(Duration stickiness) {
+        this.stickiness = stickiness;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReadYourWrites.start(lastWrite(request), written -> response.addCookie(cookie(written)));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.stop();
+        }
+    }
+
+    private static Instant lastWrite(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE);
+        if (cookie == null){
+            return null;
+        }
+        try {
+            return Instant.ofEpochMilli(Long.parseLong(cookie.getValue()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Cookie cookie(Instant written) {
+        Cookie cookie = new Cookie(COOKIE, Long.toString(written.toEpochMilli()));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        // rounded up, so the cookie outlives the stickiness
+        cookie.setMaxAge((int) ((stickiness.toMillis() + 999) / 1000));
+        return cookie;
+    }
+}
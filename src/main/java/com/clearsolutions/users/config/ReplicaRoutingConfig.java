@@ -0,0 +1,93 @@
+package com.clearsolutions.users.config;
+
+import com.clearsolutions.users.user.model.properties.ReplicaRoutingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces Spring Boot's DataSource with {@link ReplicaRoutingDataSource} over the spring.datasource primary
+ * and the datasource.replicas urls. Replica pools use the primary's credentials and spring.datasource.hikari settings,
+ * hand out read-only connections and do not fail startup when a replica is down.
+ * <p>
+ * Spring Data runs repository reads in read-only transactions, so the single-query reads of UserService and the caches
+ * go to replicas without their own {@code @Transactional(readOnly = true)}; its write methods stay on the primary.
+ * {@link ReadYourWritesFilter} keeps a client that just wrote on the primary.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.replicas", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig implements DisposableBean {
+
+    private static final String HIKARI_PROPERTIES = "spring.datasource.hikari";
+
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    /**
+     * Lazy, so the connection is only taken on the first statement, once the transaction is marked read-only.
+     */
+    @Bean
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, ReplicaRoutingProperties replicaRoutingProperties,
+                                 Environment environment, MeterRegistry meterRegistry) {
+        HikariDataSource primary = pool(dataSourceProperties, dataSourceProperties.determineUrl(), "primary", environment, meterRegistry);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaRoutingProperties.getUrls().size(); i++) {
+            HikariDataSource replica = pool(dataSourceProperties, replicaRoutingProperties.getUrls().get(i), "replica-" + i, environment, meterRegistry);
+            replica.setMaximumPoolSize(replicaRoutingProperties.getMaximumPoolSize());
+            replica.setReadOnly(true);
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+
+        replicaRoutingDataSource = new ReplicaRoutingDataSource(primary, replicas, replicaRoutingProperties.getStickiness(),
+                replicaRoutingProperties.getHealthCheckTimeout(), meterRegistry);
+        replicaRoutingDataSource.checkReplicas();
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicaRoutingProperties replicaRoutingProperties) {
+        return new FilterRegistrationBean<>(new ReadYourWritesFilter(replicaRoutingProperties.getStickiness()));
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.health-check-interval}")
+    public void checkReplicas() {
+        if (replicaRoutingDataSource != null){
+            replicaRoutingDataSource.checkReplicas();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (replicaRoutingDataSource != null){
+            replicaRoutingDataSource.close();
+        }
+    }
+
+    static HikariDataSource pool(DataSourceProperties dataSourceProperties, String url, String name,
+                                         Environment environment, MeterRegistry meterRegistry) {
+        HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind(HIKARI_PROPERTIES, Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
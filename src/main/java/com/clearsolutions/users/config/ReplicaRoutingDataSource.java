@@ -0,0 +1,198 @@
+package com.clearsolutions.users.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything else.
+ * The connection is taken on the first statement, behind the LazyConnectionDataSourceProxy of {@link ReplicaRoutingConfig},
+ * when the transaction's read-only flag is already set. Replicas are picked round-robin among the healthy ones;
+ * a replica is only used once {@link #checkReplicas} found it valid, and one that cannot hand out a connection is
+ * taken out of rotation until the next check finds it valid again. Without a healthy replica reads go to the primary.
+ * <p>
+ * Read-your-writes is per client: after a client's write, that client's reads go to the primary for stickiness,
+ * which has to cover the replication lag, on whichever node they land; see {@link ReadYourWrites}. Other clients keep
+ * reading from the replicas. Loads of the user caches, which are updated in place on writes and serve every client,
+ * read from the primary for stickiness after any write of this node, so they are not filled with rows a replica
+ * does not have yet. Writes on other nodes are not seen by those caches.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final HikariDataSource primaryPool;
+    private final List<Replica> replicas;
+    private final Duration stickiness;
+    private final Duration healthCheckTimeout;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong writtenUntil = new AtomicLong(System.nanoTime());
+    private final Counter primaryWrites;
+    private final Counter primaryReads;
+
+    public ReplicaRoutingDataSource(HikariDataSource primaryPool, List<HikariDataSource> replicaPools, Duration stickiness,
+                                    Duration healthCheckTimeout, MeterRegistry meterRegistry) {
+        this.primaryPool = primaryPool;
+        this.primary = ProxyDataSourceBuilder.create(primaryPool)
+                .name(PRIMARY)
+                .listener(new WriteListener())
+                .build();
+        this.replicas = replicaPools.stream()
+                .map(pool -> new Replica(pool, routed(meterRegistry, pool.getPoolName(), "read-only")))
+                .toList();
+        this.stickiness = stickiness;
+        this.healthCheckTimeout = healthCheckTimeout;
+        this.primaryWrites = routed(meterRegistry, PRIMARY, "read-write");
+        this.primaryReads = routed(meterRegistry, PRIMARY, "read-only");
+
+        for (Replica replica : replicas) {
+            Gauge.builder("db.replicas.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .description("Whether the replica is used for read-only transactions")
+                    .tag("pool", replica.pool.getPoolName())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()){
+            primaryWrites.increment();
+            return primary.getConnection();
+        }
+
+        if (!readsFromPrimary()){
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+                if (replica.healthy){
+                    try {
+                        Connection connection = replica.pool.getConnection();
+                        replica.reads.increment();
+                        return connection;
+                    } catch (SQLException e) {
+                        replica.healthy = false;
+                        log.warn("Replica {} is unavailable, reading from the other replicas or the primary", replica.pool.getPoolName(), e);
+                    }
+                }
+            }
+        }
+
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections are taken from the pools with their own credentials");
+    }
+
+    /**
+     * @return true while reads of the current thread are kept on the primary: the client wrote within stickiness,
+     * or this is a cache load and the node wrote within stickiness
+     */
+    public boolean readsFromPrimary() {
+        ReadYourWrites client = ReadYourWrites.client();
+        if (client != null && client.lastWrite() != null && client.lastWrite().plus(stickiness).isAfter(Instant.now())){
+            return true;
+        }
+        return ReadYourWrites.isSharedLoad() && writtenUntil.get() - System.nanoTime() > 0;
+    }
+
+    /**
+     * Validates a connection of every replica and takes the replica back into rotation, or out of it.
+     * A connection that is no longer valid is evicted from the pool.
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.pool.getConnection()) {
+                healthy = connection.isValid((int) healthCheckTimeout.toSeconds());
+                if (!healthy){
+                    replica.pool.evictConnection(connection);
+                }
+            } catch (SQLException e) {
+                healthy = false;
+            }
+
+            if (healthy != replica.healthy){
+                log.info("Replica {} is {}", replica.pool.getPoolName(), healthy ? "back in rotation" : "out of rotation");
+                replica.healthy = healthy;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+        primaryPool.close();
+    }
+
+    private void written() {
+        long until = System.nanoTime() + stickiness.toNanos();
+        writtenUntil.accumulateAndGet(until, (current, update) -> update - current > 0 ? update : current);
+
+        ReadYourWrites client = ReadYourWrites.client();
+        if (client != null){
+            client.written(Instant.now());
+        }
+    }
+
+    private static Counter routed(MeterRegistry meterRegistry, String pool, String access) {
+        return Counter.builder("db.connections.routed")
+                .description("Connections handed out per pool and transaction access mode")
+                .tag("pool", pool)
+                .tag("access", access)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records every statement but a select as a write of the node and of the current client.
+     */
+    private class WriteListener implements QueryExecutionListener {
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (!queryInfoList.isEmpty() && QueryUtils.getQueryType(queryInfoList.get(0).getQuery()) != QueryType.SELECT){
+                written();
+            }
+        }
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource pool;
+        private final Counter reads;
+        private volatile boolean healthy;
+
+        private Replica(HikariDataSource pool, Counter reads) {
+            this.pool = pool;
+            this.reads = reads;
+        }
+    }
+}
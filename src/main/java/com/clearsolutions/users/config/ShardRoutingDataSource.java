@@ -0,0 +1,16 @@
+package com.clearsolutions.users.config;
+
+import com.clearsolutions.users.user.shard.UserShards;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections of the shard bound to the thread by {@link UserShards#onShard}.
+ * Unbound work (schema management, and anything that is not about particular users) gets shard 0.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return UserShards.current();
+    }
+}
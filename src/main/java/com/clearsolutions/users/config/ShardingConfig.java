@@ -0,0 +1,88 @@
+package com.clearsolutions.users.config;
+
+import com.clearsolutions.users.user.model.properties.UserShardingProperties;
+import com.clearsolutions.users.user.shard.UserShards;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.relational.SchemaManager;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces Spring Boot's DataSource with {@link ShardRoutingDataSource} over the sharding.users urls;
+ * spring.datasource.url is not used. Shard pools use the spring.datasource credentials and hikari settings.
+ * Cannot be combined with read replicas, which replace the same DataSource.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "sharding.users", name = "enabled", havingValue = "true")
+public class ShardingConfig implements DisposableBean {
+
+    private static final Set<String> SCHEMA_CREATING_ACTIONS = Set.of("create", "create-drop", "create-only", "update");
+
+    private final List<HikariDataSource> shards = new ArrayList<>();
+
+    /**
+     * Lazy, so the connection is only taken on the first statement, once the shard is bound.
+     */
+    @Bean
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, UserShardingProperties userShardingProperties,
+                                 Environment environment, MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < userShardingProperties.getUrls().size(); i++) {
+            HikariDataSource shard = ReplicaRoutingConfig.pool(dataSourceProperties, userShardingProperties.getUrls().get(i),
+                    "shard-" + i, environment, meterRegistry);
+            shards.add(shard);
+            targets.put(i, shard);
+        }
+        if (shards.isEmpty()){
+            throw new IllegalStateException("sharding.users.urls must name at least one shard");
+        }
+
+        ShardRoutingDataSource shardRoutingDataSource = new ShardRoutingDataSource();
+        shardRoutingDataSource.setTargetDataSources(targets);
+        shardRoutingDataSource.setDefaultTargetDataSource(shards.get(0));
+        shardRoutingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    /**
+     * ddl-auto only reaches shard 0, the default; the mapped tables are created on the other shards the same way.
+     */
+    @Bean
+    public SmartInitializingSingleton shardSchemaExport(EntityManagerFactory entityManagerFactory, UserShards userShards) {
+        return () -> {
+            Object action = entityManagerFactory.getProperties().get("hibernate.hbm2ddl.auto");
+            if (action == null || !SCHEMA_CREATING_ACTIONS.contains(action.toString())){
+                return;
+            }
+
+            SchemaManager schemaManager = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getSchemaManager();
+            for (int shard = 1; shard < userShards.count(); shard++) {
+                userShards.onShard(shard, () -> {
+                    schemaManager.exportMappedObjects(true);
+                    return null;
+                });
+            }
+        };
+    }
+
+    @Override
+    public void destroy() {
+        shards.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,50 @@
+package com.clearsolutions.users.config;
+
+import com.clearsolutions.users.user.metrics.StatementCountFilter;
+import com.clearsolutions.users.user.metrics.StatementListener;
+import com.clearsolutions.users.user.model.properties.StatementMonitoringProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the DataSource with datasource-proxy so every JDBC execution goes through {@link StatementListener},
+ * and counts statements per HTTP request with {@link StatementCountFilter}.
+ */
+@Configuration
+public class StatementMonitoringConfig {
+
+    @Bean
+    public static BeanPostProcessor statementListenerDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+                                                                           ObjectProvider<StatementMonitoringProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)){
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new StatementListener(meterRegistry, properties.getObject().getSlowThreshold()))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<StatementCountFilter> statementCountFilter(MeterRegistry meterRegistry,
+                                                                             StatementMonitoringProperties properties) {
+        FilterRegistrationBean<StatementCountFilter> registration = new FilterRegistrationBean<>(
+                new StatementCountFilter(meterRegistry, properties.getMaxPerRequest()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,193 @@
+package com.clearsolutions.users.user.cache;
+
+import com.clearsolutions.users.config.ReadYourWrites;
+import com.clearsolutions.users.user.index.BirthdayIndex;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.properties.AgeRangeCacheProperties;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.BirthdayRange;
+import com.clearsolutions.users.user.service.UserCursor;
+import com.clearsolutions.users.user.shard.UserShards;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Results of the age-range query keyed by (from, to, date). Cached results are patched in place
+ * once a write of UserService commits, and the ranges in use are reloaded for the new date at midnight.
+ * Results above {@code cache.age-ranges.maximum-users-per-range} users are not cached. Once the {@link BirthdayIndex}
+ * is ready, results are loaded from it; otherwise from the database with {@link ReadYourWrites#sharedLoad shared loads},
+ * which do not read a replica that may lag behind the patches.
+ * Like {@link UserCache}, cached users are copied on the way in and out, so callers may modify what they get back.
+ */
+@Component
+public class AgeRangeCache {
+
+    private static final Comparator<UserCursor> ORDER = Comparator.comparing(UserCursor::birthday).thenComparing(UserCursor::id);
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final BirthdayIndex birthdayIndex;
+    private final int maximumUsersPerRange;
+    private final Cache<Key, RangeResult> results;
+
+    /**
+     * Bumped by every patch; a load that raced with a write is returned but not cached. A patch and the
+     * version check of a load followed by its put hold the lock, so no patch falls between the two.
+     */
+    private final Object writeLock = new Object();
+    private long writeVersion;
+
+    public AgeRangeCache(UserRepository userRepository, UserShards userShards, BirthdayIndex birthdayIndex,
+                         AgeRangeCacheProperties ageRangeCacheProperties) {
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.birthdayIndex = birthdayIndex;
+        this.maximumUsersPerRange = ageRangeCacheProperties.getMaximumUsersPerRange();
+        this.results = Caffeine.newBuilder()
+                .maximumSize(ageRangeCacheProperties.getMaximumRanges())
+                .expireAfterWrite(Duration.ofHours(25))
+                .recordStats()
+                .build();
+    }
+
+    public List<User> find(int from, int to) {
+        Key key = new Key(from, to, LocalDate.now());
+
+        RangeResult result = results.getIfPresent(key);
+        if (result != null){
+            return result.snapshot();
+        }
+
+        return load(key);
+    }
+
+    public void update(User user) {
+        User copy = UserCache.copy(user);
+        synchronized (writeLock) {
+            writeVersion++;
+            for (RangeResult result : results.asMap().values()) {
+                result.update(copy);
+            }
+        }
+    }
+
+    /**
+     * For writes that keep the birthday, so the user stays at the same position of every range.
+     * {@code patch} gets the cached user and returns the patched one.
+     */
+    public void patch(Long userId, UnaryOperator<User> patch) {
+        synchronized (writeLock) {
+            writeVersion++;
+            for (RangeResult result : results.asMap().values()) {
+                result.patch(userId, patch);
+            }
+        }
+    }
+
+    public void remove(Long userId) {
+        synchronized (writeLock) {
+            writeVersion++;
+            for (RangeResult result : results.asMap().values()) {
+                result.remove(userId);
+            }
+        }
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rebuild() {
+        LocalDate today = LocalDate.now();
+        for (Key key : List.copyOf(results.asMap().keySet())) {
+            if (key.date().isBefore(today)){
+                results.invalidate(key);
+                load(new Key(key.from(), key.to(), today));
+            }
+        }
+    }
+
+    private List<User> load(Key key) {
+        long version;
+        synchronized (writeLock) {
+            version = writeVersion;
+        }
+        BirthdayRange range = BirthdayRange.of(key.from(), key.to(), key.date());
+
+        List<User> users = birthdayIndex.isReady() ? birthdayIndex.find(range) : ReadYourWrites.sharedLoad(() -> userShards.gather(
+                shard -> userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(range.minBirthday(), range.maxBirthday()),
+                UserCursor.USER_ORDER, Integer.MAX_VALUE));
+
+        if (users.size() <= maximumUsersPerRange){
+            RangeResult result = new RangeResult(range, users);
+            synchronized (writeLock) {
+                if (writeVersion == version){
+                    results.put(key, result);
+                }
+            }
+            return result.snapshot();
+        }
+        return users;
+    }
+
+    private record Key(int from, int to, LocalDate date) {
+    }
+
+    private static final class RangeResult {
+
+        private final BirthdayRange range;
+        private final TreeMap<UserCursor, User> users = new TreeMap<>(ORDER);
+        private final Map<Long, UserCursor> cursorsById = new HashMap<>();
+
+        RangeResult(BirthdayRange range, List<User> users) {
+            this.range = range;
+            for (User user : users) {
+                put(user);
+            }
+        }
+
+        synchronized List<User> snapshot() {
+            List<User> snapshot = new ArrayList<>(users.size());
+            for (User user : users.values()) {
+                snapshot.add(UserCache.copy(user));
+            }
+            return snapshot;
+        }
+
+        synchronized void update(User user) {
+            remove(user.getId());
+            if (range.contains(user.getBirthday())){
+                put(user);
+            }
+        }
+
+        synchronized void patch(Long userId, UnaryOperator<User> patch) {
+            UserCursor cursor = cursorsById.get(userId);
+            if (cursor != null){
+                users.put(cursor, patch.apply(users.get(cursor)));
+            }
+        }
+
+        synchronized void remove(Long userId) {
+            UserCursor cursor = cursorsById.remove(userId);
+            if (cursor != null){
+                users.remove(cursor);
+            }
+        }
+
+        private void put(User user) {
+            UserCursor cursor = UserCursor.of(user);
+            users.put(cursor, user);
+            cursorsById.put(user.getId(), cursor);
+        }
+    }
+}
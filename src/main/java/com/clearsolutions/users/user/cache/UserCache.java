@@ -0,0 +1,135 @@
+package com.clearsolutions.users.user.cache;
+
+import com.clearsolutions.users.config.ReadYourWrites;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.properties.UserCacheProperties;
+import com.clearsolutions.users.user.model.response.UserCacheStats;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.shard.UserDirectory;
+import com.clearsolutions.users.user.shard.UserShards;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-through cache of users by id, with a secondary email to id mapping.
+ * Entries are copies that are never handed out directly, so callers may modify what they get back.
+ * UserService keeps it in sync on every write. Misses are read from the user's shard; with sharding
+ * an email is resolved to its user through the {@link UserDirectory}. Misses are {@link ReadYourWrites#sharedLoad shared loads}.
+ */
+@Component
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final UserDirectory userDirectory;
+    private final Cache<Long, User> usersById;
+    private final Cache<String, Long> idsByEmail;
+
+    public UserCache(UserRepository userRepository, UserShards userShards, UserDirectory userDirectory,
+                     UserCacheProperties userCacheProperties) {
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.userDirectory = userDirectory;
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(userCacheProperties.getMaximumSize())
+                .expireAfterWrite(userCacheProperties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        this.idsByEmail = Caffeine.newBuilder()
+                .maximumSize(userCacheProperties.getMaximumSize())
+                .expireAfterWrite(userCacheProperties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    public Optional<User> findById(Long id) {
+        User user = usersById.getIfPresent(id);
+        if (user == null){
+            user = ReadYourWrites.sharedLoad(() -> userShards.onShardOf(id, () -> userRepository.findById(id))).orElse(null);
+            if (user == null){
+                return Optional.empty();
+            }
+            put(user);
+        }
+        return Optional.of(copy(user));
+    }
+
+    /**
+     * The users of the given ids that exist, by id. Misses are read with one query per shard and cached.
+     */
+    public Map<Long, User> findAllById(Collection<Long> ids) {
+        Map<Long, User> users = new HashMap<>(usersById.getAllPresent(ids));
+        List<Long> missing = ids.stream().filter(id -> !users.containsKey(id)).distinct().toList();
+        if (!missing.isEmpty()){
+            for (User user : ReadYourWrites.sharedLoad(() -> userShards.gatherByIds(missing, userRepository::findAllById))) {
+                put(user);
+                users.put(user.getId(), user);
+            }
+        }
+        users.replaceAll((id, user) -> copy(user));
+        return users;
+    }
+
+    public Optional<User> findByEmail(String email) {
+        Long id = idsByEmail.getIfPresent(email);
+        if (id != null){
+            Optional<User> user = findById(id);
+            if (user.isPresent() && email.equals(user.get().getEmail())){
+                return user;
+            }
+            idsByEmail.invalidate(email);
+        }
+
+        if (userDirectory.isEnabled()){
+            return userDirectory.findUserId(email)
+                    .flatMap(this::findById)
+                    .filter(user -> email.equals(user.getEmail()));
+        }
+
+        return ReadYourWrites.sharedLoad(() -> userRepository.findByEmail(email)).map(user -> {
+            put(user);
+            return copy(user);
+        });
+    }
+
+    public void put(User user) {
+        User cached = copy(user);
+        usersById.put(cached.getId(), cached);
+        idsByEmail.put(cached.getEmail(), cached.getId());
+    }
+
+    public void evict(Long id) {
+        User cached = usersById.getIfPresent(id);
+        if (cached != null){
+            idsByEmail.invalidate(cached.getEmail());
+        }
+        usersById.invalidate(id);
+    }
+
+    public UserCacheStats stats() {
+        CacheStats byId = usersById.stats();
+        CacheStats byEmail = idsByEmail.stats();
+        return UserCacheStats.builder()
+                .size(usersById.estimatedSize())
+                .idHitCount(byId.hitCount())
+                .idMissCount(byId.missCount())
+                .emailHitCount(byEmail.hitCount())
+                .emailMissCount(byEmail.missCount())
+                .evictionCount(byId.evictionCount() + byEmail.evictionCount())
+                .build();
+    }
+
+    static User copy(User user) {
+        return user.toBuilder()
+                .address(user.getAddress() == null ? null : user.getAddress().toBuilder().build())
+                .build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.clearsolutions.users.user.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the users table, bumped by UserService once a write commits. Listing ETags are derived from it,
+ * so a conditional GET is answered with 304 before any query runs; bumping before the commit would pair
+ * the new ETag with the old rows.
+ * The version is kept per instance: writes that bypass UserService are not seen.
+ */
+@Component
+public class UserTableVersion {
+
+    /** Start time of this instance, so a version number reused after a restart yields a different ETag. */
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Weak, as the server may send the same version compressed or not. Includes today's date because ages,
+     * and with them the age-range results, change at midnight.
+     */
+    public String etag() {
+        return "W/\"" + Long.toHexString(epoch) + "-" + version.get() + "-" + LocalDate.now().toEpochDay() + "\"";
+    }
+}
@@ -0,0 +1,56 @@
+package com.clearsolutions.users.user.controller;
+
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.service.ReactiveUserService;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux version of {@link UserController}, served instead of it when the "reactive" profile is active.
+ */
+@RestController
+@RequestMapping("/users")
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactiveUserController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private ReactiveUserService reactiveUserService;
+
+    @PostMapping
+    public Mono<String> createUser(@RequestBody UserCreateRequest userCreateRequest){
+        return reactiveUserService.createUser(userCreateRequest);
+    }
+
+    @PatchMapping("/{user-id}")
+    public Mono<String> updateUser(@PathVariable("user-id") Long userId,
+                                   @RequestBody(required = false) UserUpdateRequest userUpdateRequest){
+        return reactiveUserService.updateUser(userId, userUpdateRequest);
+    }
+
+    @DeleteMapping("/{user-id}")
+    public Mono<String> deleteUser(@PathVariable("user-id") Long userId){
+        return reactiveUserService.deleteUser(userId);
+    }
+
+    @GetMapping("/{user-id}")
+    public Mono<User> getUser(@PathVariable("user-id") Long userId){
+        return reactiveUserService.getUser(userId);
+    }
+
+    /**
+     * Encoded as a JSON array by default; with "Accept: application/x-ndjson" every user is flushed as its own line.
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public Flux<User> getUsersByAgeRange(@RequestParam(defaultValue = "18") int from,
+                                         @RequestParam(defaultValue = "122") int to){
+        return reactiveUserService.getUsersByAgeRange(from, to);
+    }
+}
@@ -1,40 +1,200 @@
-package com.clearsolutions.users.user.controller;
-
-import com.clearsolutions.users.user.model.entity.User;
-import com.clearsolutions.users.user.model.request.UserCreateRequest;
-import com.clearsolutions.users.user.model.request.UserUpdateRequest;
-import com.clearsolutions.users.user.service.UserService;
-import lombok.AllArgsConstructor;
-import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
-
-@RestController
-@RequestMapping("/users")
-@AllArgsConstructor
-public class UserController {
-
-    private UserService userService;
-
-    @PostMapping
-    public String createUser(@RequestBody UserCreateRequest userCreateRequest){
-        return userService.createUser(userCreateRequest);
-    }
-
-    @PatchMapping("/{user-id}")
-    public String updateUser(@PathVariable("user-id") Long userId,
-                             @RequestBody(required = false) UserUpdateRequest userUpdateRequest){
-        return userService.updateUser(userId, userUpdateRequest);
-    }
-
-    @DeleteMapping("/{user-id}")
-    public String deleteUser(@PathVariable("user-id") Long userId){
-        return userService.deleteUser(userId);
-    }
-
-    @GetMapping//("/{from}-{to}")
-    public List<User> getUsersByAgeRange(@RequestParam(defaultValue = "18") int from,
-                                         @RequestParam(defaultValue = "122") int to){
-        return userService.getUsersByAgeRange(from, to);
-    }
-}
+package com.clearsolutions.users.user.controller;
+
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.model.response.UserCacheStats;
+import com.clearsolutions.users.user.model.response.UserChangeFeed;
+import com.clearsolutions.users.user.model.response.UserImportResult;
+import com.clearsolutions.users.user.model.response.UserIngestionStatus;
+import com.clearsolutions.users.user.model.response.UserPage;
+import com.clearsolutions.users.user.model.response.UserView;
+import com.clearsolutions.users.user.model.response.UserViewPage;
+import com.clearsolutions.users.user.outbox.UserChangeOutbox;
+import com.clearsolutions.users.user.service.UserCsvService;
+import com.clearsolutions.users.user.service.UserExportService;
+import com.clearsolutions.users.user.service.UserImportService;
+import com.clearsolutions.users.user.service.UserIngestionService;
+import com.clearsolutions.users.user.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+@RestController
+@RequestMapping("/users")
+@Profile("!reactive")
+@AllArgsConstructor
+public class UserController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    private UserService userService;
+    private UserExportService userExportService;
+    private UserImportService userImportService;
+    private UserIngestionService userIngestionService;
+    private UserCsvService userCsvService;
+    private UserChangeOutbox userChangeOutbox;
+
+    /**
+     * With {@code Prefer: respond-async} the create is write-behind, see {@link UserIngestionService}: 202 with a tracking id
+     * to poll, or 429 when the queue is full. Without ingestion.users.enabled the preference is ignored.
+     */
+    @PostMapping
+    public ResponseEntity<?> createUser(@RequestBody UserCreateRequest userCreateRequest,
+                                        @RequestHeader(value = "Prefer", required = false) List<String> prefer){
+        if (!userIngestionService.isEnabled() || !prefersRespondAsync(prefer)){
+            return ResponseEntity.ok(userService.createUser(userCreateRequest));
+        }
+
+        UserIngestionStatus status = userIngestionService.submit(userCreateRequest);
+        return ResponseEntity.accepted()
+                .location(URI.create("/users/ingestion/" + status.trackingId()))
+                .header("Preference-Applied", "respond-async")
+                .body(status);
+    }
+
+    @GetMapping("/ingestion/{tracking-id}")
+    public ResponseEntity<UserIngestionStatus> getUserIngestionStatus(@PathVariable("tracking-id") String trackingId){
+        return ResponseEntity.of(userIngestionService.getStatus(trackingId));
+    }
+
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public UserImportResult importUsers(HttpServletRequest request) throws IOException {
+        return userImportService.importUsers(request.getInputStream());
+    }
+
+    @PostMapping(value = "/bulk", consumes = CSV)
+    public UserImportResult importUsersCsv(HttpServletRequest request) throws IOException {
+        return userCsvService.importUsers(request.getInputStream());
+    }
+
+    @PatchMapping("/{user-id}")
+    public String updateUser(@PathVariable("user-id") Long userId,
+                             @RequestBody(required = false) UserUpdateRequest userUpdateRequest){
+        return userService.updateUser(userId, userUpdateRequest);
+    }
+
+    @DeleteMapping("/{user-id}")
+    public String deleteUser(@PathVariable("user-id") Long userId){
+        return userService.deleteUser(userId);
+    }
+
+    @GetMapping("/{user-id}")
+    public User getUser(@PathVariable("user-id") Long userId){
+        return userService.getUser(userId);
+    }
+
+    @GetMapping(params = "email")
+    public User getUserByEmail(@RequestParam String email){
+        return userService.getUserByEmail(email);
+    }
+
+    @GetMapping("/search")
+    public List<User> searchUsers(@RequestParam String q,
+                                  @RequestParam(defaultValue = "18") int from,
+                                  @RequestParam(defaultValue = "122") int to,
+                                  @RequestParam(defaultValue = "20") int limit){
+        return userService.searchUsers(q, from, to, limit);
+    }
+
+    /**
+     * Incremental sync for consumers that would otherwise re-read the listings: changes published after {@code since}.
+     */
+    @GetMapping("/changes")
+    public UserChangeFeed getUserChanges(@RequestParam(defaultValue = "0") long since,
+                                         @RequestParam(defaultValue = "100") int limit){
+        return userChangeOutbox.getChanges(since, limit);
+    }
+
+    @GetMapping("/cache-stats")
+    public UserCacheStats getUserCacheStats(){
+        return userService.getUserCacheStats();
+    }
+
+    /**
+     * Like the other listings below, carries a weak ETag of the users table version. A matching If-None-Match
+     * is answered with 304 before the query runs: checkNotModified has then set the status and the null body is ignored.
+     */
+    @GetMapping//("/{from}-{to}")
+    public List<User> getUsersByAgeRange(@RequestParam(defaultValue = "18") int from,
+                                         @RequestParam(defaultValue = "122") int to,
+                                         WebRequest webRequest){
+        if (webRequest.checkNotModified(userService.getUsersETag())){
+            return null;
+        }
+        return userService.getUsersByAgeRange(from, to);
+    }
+
+    @GetMapping(params = "fields")
+    public List<UserView> getUserViewsByAgeRange(@RequestParam(defaultValue = "18") int from,
+                                                 @RequestParam(defaultValue = "122") int to,
+                                                 @RequestParam String fields,
+                                                 WebRequest webRequest){
+        if (webRequest.checkNotModified(userService.getUsersETag())){
+            return null;
+        }
+        return userService.getUserViewsByAgeRange(from, to, fields);
+    }
+
+    @GetMapping("/page")
+    public UserPage getUsersPageByAgeRange(@RequestParam(defaultValue = "18") int from,
+                                           @RequestParam(defaultValue = "122") int to,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "50") int size,
+                                           WebRequest webRequest){
+        if (webRequest.checkNotModified(userService.getUsersETag())){
+            return null;
+        }
+        return userService.getUsersPageByAgeRange(from, to, cursor, size);
+    }
+
+    @GetMapping(value = "/page", params = "fields")
+    public UserViewPage getUserViewsPageByAgeRange(@RequestParam(defaultValue = "18") int from,
+                                                   @RequestParam(defaultValue = "122") int to,
+                                                   @RequestParam String fields,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "50") int size,
+                                                   WebRequest webRequest){
+        if (webRequest.checkNotModified(userService.getUsersETag())){
+            return null;
+        }
+        return userService.getUserViewsPageByAgeRange(from, to, fields, cursor, size);
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON)
+    public void exportUsersByAgeRange(@RequestParam(defaultValue = "18") int from,
+                                      @RequestParam(defaultValue = "122") int to,
+                                      HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        userExportService.exportUsersByAgeRange(from, to, response.getOutputStream());
+    }
+
+    @GetMapping(value = "/export", produces = CSV)
+    public void exportUsersCsv(HttpServletResponse response) throws IOException {
+        response.setContentType(CSV);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv\"");
+        userCsvService.exportUsers(response.getOutputStream());
+    }
+
+    /**
+     * Prefer (RFC 7240) is a comma-separated list of preferences, each a token with an optional value and parameters.
+     */
+    private static boolean prefersRespondAsync(List<String> prefer) {
+        return prefer != null && prefer.stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(preference -> preference.split("[=;]", 2)[0].strip())
+                .anyMatch("respond-async"::equalsIgnoreCase);
+    }
+}
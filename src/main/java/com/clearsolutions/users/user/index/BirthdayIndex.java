@@ -0,0 +1,227 @@
+package com.clearsolutions.users.user.index;
+
+import com.clearsolutions.users.user.cache.AgeRangeCache;
+import com.clearsolutions.users.user.cache.UserCache;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.properties.UserProperties;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.BirthdayRange;
+import com.clearsolutions.users.user.shard.UserShards;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Optional in-process index of (birthday, id) pairs, enabled by {@code validation.user-birthday-index-enabled}.
+ * Each pair is packed into one long (epoch day in the high bits, id in the low 40 bits), so the index
+ * holds no object per user and an age range is two binary searches followed by a sequential scan.
+ * <p>
+ * It backs the loads of the {@link AgeRangeCache}, which serves the age-range reads: the ids come from the index and
+ * the users from the {@link UserCache}. Writes that bypass UserService leave stale keys behind; they are harmless
+ * because a user listed under a birthday it no longer has is skipped, and they are dropped by the nightly rebuild.
+ * With sharding the index covers every shard: the shards are read a page at a time and their sorted keys merged.
+ */
+@Component
+public class BirthdayIndex {
+
+    private static final int ID_BITS = 40;
+    private static final long MAX_ID = (1L << ID_BITS) - 1;
+    private static final long MIN_EPOCH_DAY = LocalDate.of(0, 1, 1).toEpochDay();
+    private static final int FETCH_CHUNK_SIZE = 1000;
+    private static final int SHARD_PAGE_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final UserCache userCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private SortedLongSet keys = new SortedLongSet();
+    private List<long[]> pendingWrites;
+    private volatile boolean ready;
+
+    public BirthdayIndex(UserRepository userRepository, UserShards userShards, UserCache userCache, UserProperties userProperties,
+                         PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.userCache = userCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = Boolean.TRUE.equals(userProperties.getUserBirthdayIndexEnabled());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void add(User user) {
+        if (enabled){
+            write(pack(user.getBirthday(), user.getId()), true);
+        }
+    }
+
+    public void move(Long userId, LocalDate oldBirthday, LocalDate newBirthday) {
+        if (enabled && !oldBirthday.equals(newBirthday)){
+            write(pack(oldBirthday, userId), false);
+            write(pack(newBirthday, userId), true);
+        }
+    }
+
+    public void remove(Long userId, LocalDate birthday) {
+        if (enabled){
+            write(pack(birthday, userId), false);
+        }
+    }
+
+    /**
+     * Users in the age range ordered by birthday and id, read from the {@link UserCache} in chunks of ids;
+     * the ones it does not hold cost one query per chunk.
+     */
+    public List<User> find(BirthdayRange range) {
+        long[] keys = findKeys(range);
+
+        List<User> users = new ArrayList<>(keys.length);
+        for (int start = 0; start < keys.length; start += FETCH_CHUNK_SIZE) {
+            int end = Math.min(start + FETCH_CHUNK_SIZE, keys.length);
+            List<Long> chunk = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                chunk.add(keys[i] & MAX_ID);
+            }
+            Map<Long, User> chunkUsers = userCache.findAllById(chunk);
+            for (int i = start; i < end; i++) {
+                User user = chunkUsers.get(keys[i] & MAX_ID);
+                // a stale key lists the user under a birthday it no longer has
+                if (user != null && user.getBirthday().equals(birthdayOf(keys[i]))){
+                    users.add(user);
+                }
+            }
+        }
+        return users;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 0 1 * * *")
+    public void rebuild() {
+        if (!enabled){
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        SortedLongSet loaded = load();
+
+        lock.writeLock().lock();
+        try {
+            for (long[] write : pendingWrites) {
+                if (write[1] == 1){
+                    loaded.add(write[0]);
+                }else {
+                    loaded.remove(write[0]);
+                }
+            }
+            pendingWrites = null;
+            keys = loaded;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long[] findKeys(BirthdayRange range) {
+        long[][] found = {new long[64]};
+        int[] count = {0};
+
+        lock.readLock().lock();
+        try {
+            keys.forEachInRange(pack(range.minBirthday(), 0), pack(range.maxBirthday(), MAX_ID), key -> {
+                if (count[0] == found[0].length){
+                    found[0] = Arrays.copyOf(found[0], count[0] * 2);
+                }
+                found[0][count[0]++] = key;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Arrays.copyOf(found[0], count[0]);
+    }
+
+    /**
+     * Appends the keys in order as they are read: streamed from the single database, or merged from a page per shard
+     * with {@link UserShards#mergePages}, so nothing but the new index grows with the number of users.
+     */
+    private SortedLongSet load() {
+        SortedLongSet loaded = new SortedLongSet();
+        if (!userShards.isEnabled()){
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = userRepository.streamBirthdayIndexEntries()) {
+                    rows.forEach(row -> loaded.append(pack((LocalDate) row[0], (Long) row[1])));
+                }
+            });
+            return loaded;
+        }
+
+        Pageable page = PageRequest.of(0, SHARD_PAGE_SIZE);
+        Iterator<Long> keys = userShards.mergePages(last -> (last == null
+                ? userRepository.findBirthdayIndexEntries(page)
+                : userRepository.findBirthdayIndexEntriesAfter(birthdayOf(last), last & MAX_ID, page))
+                .stream()
+                .map(row -> pack((LocalDate) row[0], (Long) row[1]))
+                .toList(), Comparator.naturalOrder());
+        while (keys.hasNext()) {
+            loaded.append(keys.next());
+        }
+        return loaded;
+    }
+
+    private void write(long key, boolean add) {
+        lock.writeLock().lock();
+        try {
+            if (add){
+                keys.add(key);
+            }else {
+                keys.remove(key);
+            }
+            if (pendingWrites != null){
+                pendingWrites.add(new long[]{key, add ? 1 : 0});
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long pack(LocalDate birthday, long id) {
+        if (id < 0 || id > MAX_ID){
+            throw new IllegalArgumentException("User id " + id + " does not fit the birthday index");
+        }
+        return ((birthday.toEpochDay() - MIN_EPOCH_DAY) << ID_BITS) | id;
+    }
+
+    private static LocalDate birthdayOf(long key) {
+        return LocalDate.ofEpochDay((key >>> ID_BITS) + MIN_EPOCH_DAY);
+    }
+}
@@ -0,0 +1,156 @@
+package com.clearsolutions.users.user.index;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Sorted set of primitive longs stored in fixed-capacity blocks, so an insert or removal
+ * only shifts one block and memory stays at 8 to 16 bytes per element. Not thread-safe.
+ */
+public class SortedLongSet {
+
+    static final int BLOCK_CAPACITY = 4096;
+
+    private long[][] blocks = new long[16][];
+    private int[] sizes = new int[16];
+    private int blockCount;
+    private long size;
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Appends a key greater than every key already in the set, filling blocks completely. Used for bulk loading.
+     */
+    public void append(long key) {
+        if (blockCount == 0 || sizes[blockCount - 1] == BLOCK_CAPACITY){
+            insertBlock(blockCount, new long[BLOCK_CAPACITY], 0);
+        }else if (blocks[blockCount - 1][sizes[blockCount - 1] - 1] >= key){
+            throw new IllegalArgumentException("Keys must be appended in ascending order");
+        }
+        int last = blockCount - 1;
+        blocks[last][sizes[last]++] = key;
+        size++;
+    }
+
+    public boolean add(long key) {
+        if (blockCount == 0){
+            append(key);
+            return true;
+        }
+
+        int block = blockFor(key);
+        int position = Arrays.binarySearch(blocks[block], 0, sizes[block], key);
+        if (position >= 0){
+            return false;
+        }
+        position = -position - 1;
+
+        if (sizes[block] == BLOCK_CAPACITY){
+            split(block);
+            if (position > sizes[block]){
+                position -= sizes[block];
+                block++;
+            }
+        }
+
+        long[] keys = blocks[block];
+        System.arraycopy(keys, position, keys, position + 1, sizes[block] - position);
+        keys[position] = key;
+        sizes[block]++;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long key) {
+        if (blockCount == 0){
+            return false;
+        }
+
+        int block = blockFor(key);
+        int position = Arrays.binarySearch(blocks[block], 0, sizes[block], key);
+        if (position < 0){
+            return false;
+        }
+
+        long[] keys = blocks[block];
+        System.arraycopy(keys, position + 1, keys, position, sizes[block] - position - 1);
+        sizes[block]--;
+        size--;
+
+        if (sizes[block] == 0){
+            removeBlock(block);
+        }
+        return true;
+    }
+
+    /**
+     * Calls the consumer for every key in [from, to] in ascending order.
+     */
+    public void forEachInRange(long from, long to, LongConsumer consumer) {
+        if (blockCount == 0 || from > to){
+            return;
+        }
+
+        int block = blockFor(from);
+        int position = Arrays.binarySearch(blocks[block], 0, sizes[block], from);
+        if (position < 0){
+            position = -position - 1;
+        }
+
+        for (; block < blockCount; block++, position = 0) {
+            long[] keys = blocks[block];
+            for (; position < sizes[block]; position++) {
+                if (keys[position] > to){
+                    return;
+                }
+                consumer.accept(keys[position]);
+            }
+        }
+    }
+
+    /**
+     * Index of the last block whose first key is not greater than the key, or 0.
+     */
+    private int blockFor(long key) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blocks[middle][0] <= key){
+                low = middle;
+            }else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private void split(int block) {
+        int half = sizes[block] / 2;
+        long[] upper = new long[BLOCK_CAPACITY];
+        System.arraycopy(blocks[block], half, upper, 0, sizes[block] - half);
+        insertBlock(block + 1, upper, sizes[block] - half);
+        sizes[block] = half;
+    }
+
+    private void insertBlock(int index, long[] keys, int blockSize) {
+        if (blockCount == blocks.length){
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            sizes = Arrays.copyOf(sizes, blockCount * 2);
+        }
+        System.arraycopy(blocks, index, blocks, index + 1, blockCount - index);
+        System.arraycopy(sizes, index, sizes, index + 1, blockCount - index);
+        blocks[index] = keys;
+        sizes[index] = blockSize;
+        blockCount++;
+    }
+
+    private void removeBlock(int index) {
+        System.arraycopy(blocks, index + 1, blocks, index, blockCount - index - 1);
+        System.arraycopy(sizes, index + 1, sizes, index, blockCount - index - 1);
+        blockCount--;
+        blocks[blockCount] = null;
+    }
+}
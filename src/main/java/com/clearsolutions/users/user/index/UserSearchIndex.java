@@ -0,0 +1,452 @@
+package com.clearsolutions.users.user.index;
+
+import com.clearsolutions.users.user.model.entity.Address;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.properties.UserSearchProperties;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.shard.UserShards;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Optional Lucene index over first name, last name, email and city, enabled by {@code search.users.enabled}.
+ * Like {@link BirthdayIndex} it is kept in sync by UserService once each write commits, and rebuilt from the database
+ * at startup and nightly; writes made while a rebuild streams the table, every shard in parallel, are replayed onto
+ * the new index before it replaces the old one.
+ * It lives in memory, or in generation subdirectories of {@code search.users.directory} when that is set.
+ * <p>
+ * Documents store the indexed fields, so a patch is applied without reading the user from the database.
+ * Searches return ids only and the caller loads the users, which drops hits for users deleted behind the index.
+ */
+@Component
+public class UserSearchIndex implements DisposableBean {
+
+    private static final String ID = "id";
+    private static final String FIRST_NAME = "first_name";
+    private static final String LAST_NAME = "last_name";
+    private static final String EMAIL = "email";
+    private static final String EMAIL_KEYWORD = "email_keyword";
+    private static final String CITY = "city";
+    private static final String BIRTHDAY = "birthday";
+    private static final String[] TEXT_FIELDS = {FIRST_NAME, LAST_NAME, EMAIL, CITY};
+    private static final String PREFIXES = "_prefixes";
+    private static final int MAX_PREFIX_LENGTH = 20;
+    private static final float EXACT_MATCH_BOOST = 2f;
+    private static final FieldType PREFIXES_TYPE = prefixesType();
+    private static final int MAX_TOKENS = 8;
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Path directory;
+    private final Analyzer analyzer = new UserAnalyzer();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Index index;
+    private Map<Long, Document> pendingWrites;
+    private Set<Long> pendingReads;
+    private volatile boolean ready;
+
+    public UserSearchIndex(UserRepository userRepository, UserShards userShards, UserSearchProperties userSearchProperties,
+                           PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = Boolean.TRUE.equals(userSearchProperties.getEnabled());
+        String directory = userSearchProperties.getDirectory();
+        this.directory = directory == null || directory.isBlank() ? null : Path.of(directory);
+        if (enabled){
+            this.index = open();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void update(User user) {
+        if (enabled){
+            write(user.getId(), document(user));
+        }
+    }
+
+    /**
+     * Re-indexes the user from its stored fields with the patch applied. Users not indexed yet are skipped,
+     * unless a rebuild is running: it may have streamed the row before the patch, so it reads them
+     * from the database again before the new index replaces the current one.
+     */
+    public void patch(Long userId, UnaryOperator<User> patch) {
+        if (!enabled){
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            Document stored = findDocument(userId);
+            if (stored != null){
+                write(userId, document(patch.apply(user(stored))));
+            }else if (pendingReads != null){
+                pendingReads.add(userId);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        if (enabled){
+            write(userId, null);
+        }
+    }
+
+    /**
+     * Ids of the users matching every word of the text, best matches first. A word matches a field
+     * it equals or starts with, and exact matches rank higher. Text with an @ also matches as an email prefix.
+     */
+    public List<Long> search(String text, LocalDate minBirthday, LocalDate maxBirthday, int limit) {
+        Query query = query(text, minBirthday, maxBirthday);
+        if (query == null){
+            return List.of();
+        }
+
+        Index current = index;
+        try {
+            current.searcherManager().maybeRefresh();
+            IndexSearcher searcher = current.searcherManager().acquire();
+            try {
+                TopDocs top = searcher.search(query, limit);
+                StoredFields storedFields = searcher.storedFields();
+                List<Long> ids = new ArrayList<>(top.scoreDocs.length);
+                for (ScoreDoc hit : top.scoreDocs) {
+                    ids.add(Long.parseLong(storedFields.document(hit.doc, Set.of(ID)).get(ID)));
+                }
+                return ids;
+            } finally {
+                current.searcherManager().release(searcher);
+            }
+        } catch (AlreadyClosedException e) {
+            // replaced by a rebuild while searching
+            return search(text, minBirthday, maxBirthday, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 30 1 * * *")
+    public void rebuild() {
+        if (!enabled){
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            pendingWrites = new HashMap<>();
+            pendingReads = new HashSet<>();
+        } finally {
+            writeLock.unlock();
+        }
+
+        Index loaded = open();
+        try {
+            userShards.scatter(shard -> transactionTemplate.execute(status -> {
+                try (Stream<Object[]> rows = userRepository.streamSearchIndexEntries()) {
+                    rows.forEach(row -> add(loaded, document((Long) row[0], (String) row[1], (String) row[2],
+                            (String) row[3], (String) row[4], (LocalDate) row[5])));
+                }
+                return null;
+            }));
+        } catch (RuntimeException e) {
+            writeLock.lock();
+            try {
+                pendingWrites = null;
+                pendingReads = null;
+            } finally {
+                writeLock.unlock();
+            }
+            loaded.close();
+            throw e;
+        }
+
+        writeLock.lock();
+        try {
+            pendingWrites.forEach((userId, document) -> apply(loaded, userId, document));
+            // under the lock, so no later write is overtaken; these are the few users patched before they were indexed
+            if (!pendingReads.isEmpty()){
+                Map<Long, User> users = new HashMap<>();
+                userShards.gatherByIds(pendingReads, userRepository::findAllById).forEach(user -> users.put(user.getId(), user));
+                pendingReads.forEach(userId -> apply(loaded, userId, users.containsKey(userId) ? document(users.get(userId)) : null));
+            }
+            pendingWrites = null;
+            pendingReads = null;
+            Index replaced = index;
+            index = loaded;
+            ready = true;
+            replaced.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (index != null){
+            index.close();
+        }
+    }
+
+    private void write(Long userId, Document document) {
+        writeLock.lock();
+        try {
+            apply(index, userId, document);
+            if (pendingWrites != null){
+                pendingWrites.put(userId, document);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Document findDocument(Long userId) {
+        try {
+            SearcherManager searcherManager = index.searcherManager();
+            searcherManager.maybeRefreshBlocking();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs top = searcher.search(new TermQuery(new Term(ID, userId.toString())), 1);
+                return top.scoreDocs.length == 0 ? null : searcher.storedFields().document(top.scoreDocs[0].doc);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Query query(String text, LocalDate minBirthday, LocalDate maxBirthday) {
+        List<String> tokens = tokens(text);
+        if (tokens.isEmpty()){
+            return null;
+        }
+
+        BooleanQuery.Builder words = new BooleanQuery.Builder();
+        for (String token : tokens) {
+            BooleanQuery.Builder fields = new BooleanQuery.Builder();
+            for (String field : TEXT_FIELDS) {
+                fields.add(new BoostQuery(new TermQuery(new Term(field, token)), EXACT_MATCH_BOOST), BooleanClause.Occur.SHOULD);
+                // prefixes are indexed as terms, so the top hits are found without expanding the prefix over the terms dictionary
+                fields.add(token.length() <= MAX_PREFIX_LENGTH
+                        ? new TermQuery(new Term(field + PREFIXES, token))
+                        : new PrefixQuery(new Term(field, token)), BooleanClause.Occur.SHOULD);
+            }
+            words.add(fields.build(), BooleanClause.Occur.MUST);
+        }
+
+        Query matches = words.build();
+        if (text.indexOf('@') >= 0){
+            matches = new BooleanQuery.Builder()
+                    .add(matches, BooleanClause.Occur.SHOULD)
+                    .add(new PrefixQuery(new Term(EMAIL_KEYWORD, text.strip().toLowerCase(Locale.ROOT))), BooleanClause.Occur.SHOULD)
+                    .build();
+        }
+
+        return new BooleanQuery.Builder()
+                .add(matches, BooleanClause.Occur.MUST)
+                .add(LongPoint.newRangeQuery(BIRTHDAY, minBirthday.toEpochDay(), maxBirthday.toEpochDay()), BooleanClause.Occur.FILTER)
+                .build();
+    }
+
+    private List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(FIRST_NAME, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (tokens.size() < MAX_TOKENS && stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    private static Document document(User user) {
+        return document(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                user.getAddress() == null ? null : user.getAddress().getCity(), user.getBirthday());
+    }
+
+    private static Document document(Long id, String email, String firstName, String lastName, String city, LocalDate birthday) {
+        Document document = new Document();
+        document.add(new StringField(ID, id.toString(), Field.Store.YES));
+        addText(document, FIRST_NAME, firstName);
+        addText(document, LAST_NAME, lastName);
+        addText(document, EMAIL, email);
+        addText(document, CITY, city);
+        if (email != null){
+            document.add(new StringField(EMAIL_KEYWORD, email.toLowerCase(Locale.ROOT), Field.Store.NO));
+        }
+        document.add(new LongPoint(BIRTHDAY, birthday.toEpochDay()));
+        document.add(new StoredField(BIRTHDAY, birthday.toEpochDay()));
+        return document;
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null){
+            document.add(new TextField(field, value, Field.Store.YES));
+            document.add(new Field(field + PREFIXES, value, PREFIXES_TYPE));
+        }
+    }
+
+    /**
+     * Without frequencies and norms every document matching a prefix scores the same, so once enough hits
+     * are collected the remaining blocks of a common prefix are skipped instead of scored.
+     */
+    private static FieldType prefixesType() {
+        FieldType type = new FieldType(TextField.TYPE_NOT_STORED);
+        type.setIndexOptions(IndexOptions.DOCS);
+        type.setOmitNorms(true);
+        type.freeze();
+        return type;
+    }
+
+    private static User user(Document document) {
+        String city = document.get(CITY);
+        return User.builder()
+                .id(Long.parseLong(document.get(ID)))
+                .email(document.get(EMAIL))
+                .firstName(document.get(FIRST_NAME))
+                .lastName(document.get(LAST_NAME))
+                .birthday(LocalDate.ofEpochDay(document.getField(BIRTHDAY).numericValue().longValue()))
+                .address(city == null ? null : Address.builder().city(city).build())
+                .build();
+    }
+
+    private static void add(Index index, Document document) {
+        try {
+            index.writer().addDocument(document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void apply(Index index, Long userId, Document document) {
+        try {
+            if (document == null){
+                index.writer().deleteDocuments(new Term(ID, userId.toString()));
+            }else {
+                index.writer().updateDocument(new Term(ID, userId.toString()), document);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Index open() {
+        try {
+            Path path = directory == null ? null : directory.resolve(Long.toString(System.nanoTime()));
+            Directory store = path == null ? new ByteBuffersDirectory() : FSDirectory.open(path);
+            IndexWriter writer = new IndexWriter(store, new IndexWriterConfig(analyzer).setCommitOnClose(false));
+            return new Index(path, store, writer, new SearcherManager(writer, null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lower-cased words as split by {@link StandardTokenizer}, plus every prefix of each word in the prefix fields.
+     */
+    private static final class UserAnalyzer extends Analyzer {
+
+        UserAnalyzer() {
+            super(PER_FIELD_REUSE_STRATEGY);
+        }
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            StandardTokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new LowerCaseFilter(tokenizer);
+            if (fieldName.endsWith(PREFIXES)){
+                stream = new EdgeNGramTokenFilter(stream, 1, MAX_PREFIX_LENGTH, true);
+            }
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new LowerCaseFilter(in);
+        }
+    }
+
+    /**
+     * One generation of the index. Nothing is committed: a generation is never reopened, the next start rebuilds.
+     */
+    private record Index(Path path, Directory directory, IndexWriter writer, SearcherManager searcherManager) {
+
+        void close() {
+            try {
+                IOUtils.close(searcherManager, writer, directory);
+                if (path != null){
+                    IOUtils.rm(path);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.clearsolutions.users.user.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Counts the statements each HTTP request executes into http.server.requests.statements, tagged like
+ * http.server.requests with method and uri template. A request above {@code monitoring.statements.max-per-request}
+ * is logged, as it usually means a query per row (N+1) slipped in.
+ */
+@Slf4j
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxPerRequest;
+
+    public StatementCountFilter(MeterRegistry meterRegistry, int maxPerRequest) {
+        this.meterRegistry = meterRegistry;
+        this.maxPerRequest = maxPerRequest;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementCounter counter = StatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            StatementCounter.stop();
+
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            DistributionSummary.builder("http.server.requests.statements")
+                    .description("JDBC executions per HTTP request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(counter.total());
+
+            if (counter.total() > maxPerRequest){
+                log.warn("{} {} executed {} statements {}", request.getMethod(), uri, counter.total(), counter);
+            }
+        }
+    }
+}
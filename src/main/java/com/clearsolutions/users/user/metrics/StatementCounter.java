@@ -0,0 +1,51 @@
+package com.clearsolutions.users.user.metrics;
+
+import net.ttddyy.dsproxy.QueryType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * JDBC statements executed by the current thread between {@link #start()} and {@link #stop()}.
+ * A JDBC batch counts as one statement, as it is one round trip.
+ * Filled by {@link StatementListener}; used per HTTP request by {@link StatementCountFilter} and by tests.
+ */
+public final class StatementCounter {
+
+    private static final ThreadLocal<StatementCounter> CURRENT = new ThreadLocal<>();
+
+    private final Map<QueryType, Integer> counts = new EnumMap<>(QueryType.class);
+
+    private StatementCounter() {
+    }
+
+    public static StatementCounter start() {
+        StatementCounter counter = new StatementCounter();
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    static void record(QueryType type) {
+        StatementCounter counter = CURRENT.get();
+        if (counter != null){
+            counter.counts.merge(type, 1, Integer::sum);
+        }
+    }
+
+    public int total() {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public int count(QueryType type) {
+        return counts.getOrDefault(type, 0);
+    }
+
+    @Override
+    public String toString() {
+        return counts.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package com.clearsolutions.users.user.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Called after every JDBC execution: counts it for {@link StatementCounter}, times it as db.statements by query type,
+ * and logs it and counts it in db.statements.slow when it ran longer than {@code monitoring.statements.slow-threshold}.
+ * The registry is looked up on first use because the listener is created while the DataSource is being wrapped.
+ */
+@Slf4j
+public class StatementListener implements QueryExecutionListener {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final long slowThresholdMillis;
+
+    public StatementListener(ObjectProvider<MeterRegistry> meterRegistry, Duration slowThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.slowThresholdMillis = slowThreshold.toMillis();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String query = queryInfoList.isEmpty() ? null : queryInfoList.get(0).getQuery();
+        QueryType type = query == null ? QueryType.OTHER : QueryUtils.getQueryType(query);
+        StatementCounter.record(type);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null){
+            Timer.builder("db.statements")
+                    .description("JDBC executions, a batch counts once")
+                    .tag("type", type.name().toLowerCase())
+                    .register(registry)
+                    .record(execInfo.getElapsedTime(), TimeUnit.MILLISECONDS);
+        }
+
+        if (execInfo.getElapsedTime() >= slowThresholdMillis){
+            log.warn("Slow query ({} ms): {}", execInfo.getElapsedTime(), query);
+            if (registry != null){
+                Counter.builder("db.statements.slow")
+                        .description("JDBC executions slower than monitoring.statements.slow-threshold")
+                        .tag("type", type.name().toLowerCase())
+                        .register(registry)
+                        .increment();
+            }
+        }
+    }
+}
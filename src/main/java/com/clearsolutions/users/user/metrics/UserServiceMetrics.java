@@ -0,0 +1,65 @@
+package com.clearsolutions.users.user.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Times every public {@link com.clearsolutions.users.user.service.UserService} method as users.service,
+ * tagged with the method and its outcome: "success" or the simple name of the exception thrown
+ * (BadRequestException, UserNotFoundException, ...). The timer count is the per-outcome call counter.
+ * Sizes of age-range results are recorded in the users.age-range.size distribution.
+ * <p>
+ * Compared with http.server.requests for the same endpoint, the difference is web and JSON rendering time;
+ * hibernate.* and hikaricp.* meters split the service time further.
+ */
+@Aspect
+@Component
+public class UserServiceMetrics {
+
+    static final String TIMER = "users.service";
+    static final String AGE_RANGE_SIZE = "users.age-range.size";
+    private static final Set<String> AGE_RANGE_METHODS = Set.of("getUsersByAgeRange", "getUserViewsByAgeRange");
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary ageRangeSize;
+
+    public UserServiceMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.ageRangeSize = DistributionSummary.builder(AGE_RANGE_SIZE)
+                .description("Users returned by one age-range query")
+                .baseUnit("users")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Around("execution(public * com.clearsolutions.users.user.service.UserService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            Object result = joinPoint.proceed();
+            if (result instanceof List<?> users && AGE_RANGE_METHODS.contains(joinPoint.getSignature().getName())){
+                ageRangeSize.record(users.size());
+            }
+            return result;
+        } catch (Throwable e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(TIMER)
+                    .description("UserService calls by method and outcome")
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
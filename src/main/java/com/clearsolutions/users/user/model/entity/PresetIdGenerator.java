@@ -0,0 +1,18 @@
+package com.clearsolutions.users.user.model.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+/**
+ * The sequence, unless the entity already has an id: with sharding users and their change events get theirs
+ * from the UserDirectory before they are saved, since the id of a user decides the shard and a shard's own sequence
+ * would hand out ids another shard already used.
+ */
+public class PresetIdGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        Object id = session.getEntityPersister(null, object).getIdentifier(object, session);
+        return id != null ? id : super.generate(session, object);
+    }
+}
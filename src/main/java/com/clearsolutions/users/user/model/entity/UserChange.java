@@ -0,0 +1,72 @@
+package com.clearsolutions.users.user.model.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Outbox row written in the transaction of a user mutation. The sequence is assigned when the change is published,
+ * so the change feed is ordered by commit and has no gaps, see {@code UserChangeRelay}.
+ */
+@Setter
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "user_changes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_changes_sequence", columnNames = "sequence"))
+public class UserChange implements Persistable<Long> {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_changes_seq")
+    @GenericGenerator(name = "user_changes_seq", type = PresetIdGenerator.class, parameters = {
+            @Parameter(name = "sequence_name", value = "user_changes_seq"),
+            @Parameter(name = "increment_size", value = "50")})
+    private Long id;
+
+    private Long sequence;
+
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Type type;
+
+    /**
+     * The created user, or a JSON merge patch of the updated fields; null for a delete.
+     */
+    @Column(length = 2000)
+    private String payload;
+
+    private Instant createdAt;
+
+    /**
+     * Whether the row exists; with sharding the id is set before the change is saved, see {@link User}.
+     */
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    private boolean persisted;
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
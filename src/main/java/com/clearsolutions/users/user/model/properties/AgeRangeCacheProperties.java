@@ -0,0 +1,15 @@
+package com.clearsolutions.users.user.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cache.age-ranges")
+public class AgeRangeCacheProperties{
+        public Long maximumRanges;
+        public Integer maximumUsersPerRange;
+}
@@ -0,0 +1,17 @@
+package com.clearsolutions.users.user.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "reactive")
+public class ReactiveProperties{
+        public String r2dbcUrl;
+        public String username;
+        public String password;
+        public Integer poolMaxSize;
+}
@@ -0,0 +1,21 @@
+package com.clearsolutions.users.user.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+@Component
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "datasource.replicas")
+public class ReplicaRoutingProperties{
+        public Boolean enabled;
+        public List<String> urls = List.of();
+        public Integer maximumPoolSize;
+        public Duration stickiness;
+        public Duration healthCheckTimeout;
+}
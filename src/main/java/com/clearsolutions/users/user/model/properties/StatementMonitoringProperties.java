@@ -0,0 +1,17 @@
+package com.clearsolutions.users.user.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "monitoring.statements")
+public class StatementMonitoringProperties{
+        public Duration slowThreshold;
+        public Integer maxPerRequest;
+}
@@ -0,0 +1,15 @@
+package com.clearsolutions.users.user.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "csv.users")
+public class UserCsvProperties{
+        public Integer parallelism;
+        public Integer chunkSize;
+}
@@ -0,0 +1,20 @@
+package com.clearsolutions.users.user.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "ingestion.users")
+public class UserIngestionProperties{
+        public Boolean enabled;
+        public Integer queueCapacity;
+        public Integer batchSize;
+        public Long statusMaximumSize;
+        public Duration statusRetention;
+}
@@ -1,15 +1,27 @@
-package com.clearsolutions.users.user.model.properties;
-
-import lombok.Getter;
-import lombok.Setter;
-import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.stereotype.Component;
-
-@Component
-@Getter
-@Setter
-@ConfigurationProperties(prefix = "validation")
-public class UserProperties{
-        public String userEmailRegex;
-        public Integer userMinAge;
-}
+package com.clearsolutions.users.user.model.properties;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+@Component
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "validation")
+public class UserProperties{
+        public String userEmailRegex;
+        public Integer userMinAge;
+        public Boolean userBirthdayIndexEnabled;
+
+        @Setter(AccessLevel.NONE)
+        private Pattern userEmailPattern;
+
+        public void setUserEmailRegex(String userEmailRegex) {
+                this.userEmailRegex = userEmailRegex;
+                this.userEmailPattern = Pattern.compile(userEmailRegex);
+        }
+}
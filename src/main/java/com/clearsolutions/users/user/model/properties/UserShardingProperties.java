@@ -0,0 +1,21 @@
+package com.clearsolutions.users.user.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+@Component
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "sharding.users")
+public class UserShardingProperties{
+        public Boolean enabled;
+        public List<String> urls = List.of();
+        public String directoryUrl;
+        public Integer virtualNodes;
+        public Duration pendingTimeout;
+}
@@ -0,0 +1,61 @@
+package com.clearsolutions.users.user.model.request;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fields a client can ask for with the {@code fields} request parameter, by their JSON name,
+ * and the entity attributes each one selects.
+ */
+public enum UserField {
+    ID("id", "id"),
+    EMAIL("email", "email"),
+    FIRST_NAME("first_name", "firstName"),
+    LAST_NAME("last_name", "lastName"),
+    BIRTHDAY("birthday", "birthday"),
+    ADDRESS("address", "address.country", "address.city", "address.street", "address.houseNumber", "address.apartmentNumber"),
+    PHONE("phone", "phone");
+
+    private final String jsonName;
+    private final List<String> attributes;
+
+    UserField(String jsonName, String... attributes) {
+        this.jsonName = jsonName;
+        this.attributes = List.of(attributes);
+    }
+
+    public List<String> attributes() {
+        return attributes;
+    }
+
+    /**
+     * @param fields comma separated JSON names, e.g. "id,email,birthday"
+     */
+    public static Set<UserField> parse(String fields) {
+        Set<UserField> result = EnumSet.noneOf(UserField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()){
+                continue;
+            }
+            result.add(byJsonName(trimmed));
+        }
+
+        if (result.isEmpty()){
+            throw new BadRequestException("Fields cannot be empty!");
+        }
+        return result;
+    }
+
+    private static UserField byJsonName(String name) {
+        for (UserField field : values()) {
+            if (field.jsonName.equals(name)){
+                return field;
+            }
+        }
+        throw new BadRequestException("Unknown field: " + name + "!");
+    }
+}
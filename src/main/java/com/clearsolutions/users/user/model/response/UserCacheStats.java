@@ -0,0 +1,13 @@
+package com.clearsolutions.users.user.model.response;
+
+import lombok.Builder;
+
+@Builder
+public record UserCacheStats(
+        long size,
+        long idHitCount,
+        long idMissCount,
+        long emailHitCount,
+        long emailMissCount,
+        long evictionCount
+){}
@@ -0,0 +1,27 @@
+package com.clearsolutions.users.user.model.response;
+
+import com.clearsolutions.users.user.model.entity.UserChange;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.Builder;
+
+import java.time.Instant;
+
+@Builder
+public record UserChangeEvent(
+        long sequence,
+        UserChange.Type type,
+        Long userId,
+        @JsonRawValue
+        String payload,
+        Instant createdAt
+){
+    public static UserChangeEvent of(UserChange change) {
+        return UserChangeEvent.builder()
+                .sequence(change.getSequence())
+                .type(change.getType())
+                .userId(change.getUserId())
+                .payload(change.getPayload())
+                .createdAt(change.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.clearsolutions.users.user.model.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDate;
+
+/**
+ * One line of the CSV export, with the {@code Address} columns flattened. The import reads the same columns by header name.
+ */
+@JsonPropertyOrder({"id", "email", "first_name", "last_name", "birthday", "phone",
+        "country", "city", "street", "house_number", "apartment_number"})
+public record UserCsvRow(
+        Long id,
+        String email,
+        String firstName,
+        String lastName,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy")
+        LocalDate birthday,
+        String phone,
+        String country,
+        String city,
+        String street,
+        Long houseNumber,
+        Long apartmentNumber
+){}
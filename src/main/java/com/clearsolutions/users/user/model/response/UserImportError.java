@@ -0,0 +1,6 @@
+package com.clearsolutions.users.user.model.response;
+
+public record UserImportError(
+        long row,
+        String message
+){}
@@ -0,0 +1,8 @@
+package com.clearsolutions.users.user.model.response;
+
+import java.util.List;
+
+public record UserImportResult(
+        int created,
+        List<UserImportError> errors
+){}
@@ -0,0 +1,15 @@
+package com.clearsolutions.users.user.model.response;
+
+import lombok.Builder;
+
+@Builder
+public record UserIngestionStatus(
+        String trackingId,
+        State status,
+        Long userId,
+        String message
+){
+    public enum State {
+        PENDING, CREATED, FAILED
+    }
+}
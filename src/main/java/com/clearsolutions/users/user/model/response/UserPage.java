@@ -0,0 +1,12 @@
+package com.clearsolutions.users.user.model.response;
+
+import com.clearsolutions.users.user.model.entity.User;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record UserPage(
+        List<User> users,
+        String nextCursor
+){}
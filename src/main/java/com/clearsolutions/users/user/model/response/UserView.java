@@ -0,0 +1,38 @@
+package com.clearsolutions.users.user.model.response;
+
+import com.clearsolutions.users.user.model.entity.Address;
+import com.clearsolutions.users.user.model.request.UserField;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Read model of a user restricted to the requested {@link UserField}s; fields that were not selected are null
+ * and left out of the JSON.
+ */
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserView(
+        Long id,
+        String email,
+        String firstName,
+        String lastName,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy")
+        LocalDate birthday,
+        Address address,
+        String phone
+){
+    public UserView only(Set<UserField> fields) {
+        return new UserView(
+                fields.contains(UserField.ID) ? id : null,
+                fields.contains(UserField.EMAIL) ? email : null,
+                fields.contains(UserField.FIRST_NAME) ? firstName : null,
+                fields.contains(UserField.LAST_NAME) ? lastName : null,
+                fields.contains(UserField.BIRTHDAY) ? birthday : null,
+                fields.contains(UserField.ADDRESS) ? address : null,
+                fields.contains(UserField.PHONE) ? phone : null);
+    }
+}
@@ -0,0 +1,11 @@
+package com.clearsolutions.users.user.model.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record UserViewPage(
+        List<UserView> users,
+        String nextCursor
+){}
@@ -0,0 +1,23 @@
+package com.clearsolutions.users.user.outbox;
+
+import com.clearsolutions.users.user.model.response.UserChangeEvent;
+import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * In-process sink: every change is published as a Spring application event, to be picked up by event listeners.
+ */
+@Component
+@AllArgsConstructor
+public class ApplicationEventUserChangeSink implements UserChangeSink {
+
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Override
+    public void publish(List<UserChangeEvent> events) {
+        events.forEach(applicationEventPublisher::publishEvent);
+    }
+}
@@ -0,0 +1,49 @@
+package com.clearsolutions.users.user.outbox;
+
+import com.clearsolutions.users.user.model.properties.UserOutboxProperties;
+import com.clearsolutions.users.user.model.response.UserChangeEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends changes to {@code outbox.users.sink-file} as newline-delimited JSON, one fsync per batch.
+ */
+@Component
+@ConditionalOnProperty("outbox.users.sink-file")
+public class FileUserChangeSink implements UserChangeSink {
+
+    private final Path file;
+    private final ObjectWriter writer;
+
+    public FileUserChangeSink(UserOutboxProperties userOutboxProperties, ObjectMapper objectMapper) {
+        this.file = Path.of(userOutboxProperties.getSinkFile());
+        this.writer = objectMapper.writerFor(UserChangeEvent.class);
+    }
+
+    @Override
+    public void publish(List<UserChangeEvent> events) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (UserChangeEvent event : events) {
+            lines.write(writer.writeValueAsBytes(event));
+            lines.write('\n');
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.clearsolutions.users.user.outbox;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.entity.UserChange;
+import com.clearsolutions.users.user.model.response.UserChangeEvent;
+import com.clearsolutions.users.user.model.response.UserChangeFeed;
+import com.clearsolutions.users.user.repository.UserChangeRepository;
+import com.clearsolutions.users.user.shard.UserDirectory;
+import com.clearsolutions.users.user.shard.UserShards;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Records user mutations in the user_changes outbox. Writes join the caller's transaction and refuse to run without one,
+ * so a change is stored exactly when the mutation commits; {@link UserChangeRelay} then publishes it.
+ */
+@Component
+public class UserChangeOutbox {
+
+    private static final int MAX_FEED_SIZE = 1000;
+
+    private final UserChangeRepository userChangeRepository;
+    private final UserShards userShards;
+    private final UserDirectory userDirectory;
+    private final ObjectWriter payloadWriter;
+
+    public UserChangeOutbox(UserChangeRepository userChangeRepository, UserShards userShards, UserDirectory userDirectory,
+                            ObjectMapper objectMapper) {
+        this.userChangeRepository = userChangeRepository;
+        this.userShards = userShards;
+        this.userDirectory = userDirectory;
+        this.payloadWriter = objectMapper.copy()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .writerFor(User.class);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void created(List<User> users) {
+        userChangeRepository.saveAll(users.stream()
+                .map(user -> change(user.getId(), UserChange.Type.CREATED, user))
+                .toList());
+    }
+
+    /**
+     * @param patch the updated fields only; the rest are null and left out of the merge patch
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void updated(Long userId, User patch) {
+        userChangeRepository.save(change(userId, UserChange.Type.UPDATED, patch));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleted(Long userId) {
+        userChangeRepository.save(change(userId, UserChange.Type.DELETED, null));
+    }
+
+    /**
+     * Published changes after the given sequence. A consumer passes back nextSince to continue;
+     * it equals since when nothing new was published. With sharding every shard's outbox is read and merged by sequence.
+     */
+    @Transactional(readOnly = true)
+    public UserChangeFeed getChanges(long since, int limit) {
+        if (since < 0){
+            throw new BadRequestException("“Since” must not be negative!");
+        }
+
+        if (limit < 1 || limit > MAX_FEED_SIZE){
+            throw new BadRequestException("Limit must be between 1 and " + MAX_FEED_SIZE + "!");
+        }
+
+        List<UserChangeEvent> changes = userShards.gather(shard -> userChangeRepository.findAllBySequenceGreaterThanOrderBySequenceAsc(
+                        since, PageRequest.of(0, limit)), Comparator.comparing(UserChange::getSequence), limit)
+                .stream()
+                .map(UserChangeEvent::of)
+                .toList();
+
+        return UserChangeFeed.builder()
+                .changes(changes)
+                .nextSince(changes.isEmpty() ? since : changes.get(changes.size() - 1).sequence())
+                .build();
+    }
+
+    /**
+     * With sharding the id is taken from the {@link UserDirectory}: the change is written on the user's shard.
+     */
+    private UserChange change(Long userId, UserChange.Type type, User payload) {
+        try {
+            UserChange change = UserChange.builder()
+                    .userId(userId)
+                    .type(type)
+                    .payload(payload == null ? null : payloadWriter.writeValueAsString(payload))
+                    .createdAt(Instant.now())
+                    .build();
+            userDirectory.assignId(change);
+            return change;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write the change of user " + userId, e);
+        }
+    }
+}
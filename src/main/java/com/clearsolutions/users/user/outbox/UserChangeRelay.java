@@ -0,0 +1,116 @@
+package com.clearsolutions.users.user.outbox;
+
+import com.clearsolutions.users.user.model.entity.UserChange;
+import com.clearsolutions.users.user.model.properties.UserOutboxProperties;
+import com.clearsolutions.users.user.model.response.UserChangeEvent;
+import com.clearsolutions.users.user.repository.UserChangeRepository;
+import com.clearsolutions.users.user.shard.UserDirectory;
+import com.clearsolutions.users.user.shard.UserShards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Publishes unpublished outbox rows in id order, batch-size at a time. Each batch is numbered on from the highest
+ * published sequence and handed to every {@link UserChangeSink} in one transaction, so sequences follow publication:
+ * a change committed late by a slow transaction gets a later sequence instead of leaving a gap behind the feed's readers.
+ * Assumes a single relay per database: a second one numbering the same batch fails on uk_user_changes_sequence and backs off.
+ * <p>
+ * With sharding each shard has its own outbox, written with its users, and uk_user_changes_sequence only covers one shard.
+ * The relay publishes them one shard after the other and numbers on from the highest sequence of any shard, holding
+ * the {@link UserDirectory} relay lock for the whole round: a relay on another instance waits for it and then numbers on
+ * from the sequences just published, or backs off when the lock times out.
+ */
+@Slf4j
+@Component
+public class UserChangeRelay {
+
+    private final UserChangeRepository userChangeRepository;
+    private final UserShards userShards;
+    private final UserDirectory userDirectory;
+    private final List<UserChangeSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+    private final UserOutboxProperties userOutboxProperties;
+
+    public UserChangeRelay(UserChangeRepository userChangeRepository, UserShards userShards, UserDirectory userDirectory,
+                           List<UserChangeSink> sinks, PlatformTransactionManager transactionManager, UserOutboxProperties userOutboxProperties) {
+        this.userChangeRepository = userChangeRepository;
+        this.userShards = userShards;
+        this.userDirectory = userDirectory;
+        this.sinks = sinks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userOutboxProperties = userOutboxProperties;
+    }
+
+    /**
+     * Publishes batches until the outbox is drained, run by {@link UserChangeRelaySchedule}.
+     * A failing sink rolls the batch back; it is retried on the next run.
+     */
+    public void relay() {
+        try {
+            while (publishBatch() >= userOutboxProperties.getBatchSize()) {
+                // a full batch on some shard, more may be waiting
+            }
+        } catch (DataIntegrityViolationException | OptimisticLockingFailureException | PessimisticLockingFailureException e) {
+            log.warn("User changes were published concurrently by another relay, retrying on the next run");
+        }
+    }
+
+    /**
+     * Publishes up to a batch from every shard.
+     *
+     * @return the number of changes published
+     */
+    public int publishBatch() {
+        return userDirectory.withChangeRelayLock(() -> {
+            long sequence = userShards.scatter(shard -> userChangeRepository.findMaxSequence()).stream()
+                    .filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder())
+                    .orElse(0L);
+
+            int published = 0;
+            for (int shard = 0; shard < userShards.count(); shard++) {
+                long after = sequence + published;
+                published += userShards.onShard(shard, () -> publishBatch(after));
+            }
+            return published;
+        });
+    }
+
+    private int publishBatch(long maxSequence) {
+        Integer published = transactionTemplate.execute(status -> {
+            List<UserChange> changes = userChangeRepository.findAllBySequenceIsNullOrderByIdAsc(
+                    PageRequest.of(0, userOutboxProperties.getBatchSize()));
+            if (changes.isEmpty()){
+                return 0;
+            }
+
+            long sequence = maxSequence;
+            List<UserChangeEvent> events = new ArrayList<>(changes.size());
+            for (UserChange change : changes) {
+                change.setSequence(++sequence);
+                events.add(UserChangeEvent.of(change));
+            }
+
+            for (UserChangeSink sink : sinks) {
+                try {
+                    sink.publish(events);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Could not publish " + events.size() + " user changes to " + sink.getClass().getSimpleName(), e);
+                }
+            }
+            return changes.size();
+        });
+        return published == null ? 0 : published;
+    }
+}
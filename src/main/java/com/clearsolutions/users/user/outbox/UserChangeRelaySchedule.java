@@ -0,0 +1,23 @@
+package com.clearsolutions.users.user.outbox;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the {@link UserChangeRelay} every relay-delay milliseconds. Off when outbox.users.relay-enabled is false,
+ * as in the tests, which call {@link UserChangeRelay#relay()} themselves where they need published changes.
+ */
+@Component
+@AllArgsConstructor
+@ConditionalOnProperty(prefix = "outbox.users", name = "relay-enabled", havingValue = "true")
+public class UserChangeRelaySchedule {
+
+    private UserChangeRelay userChangeRelay;
+
+    @Scheduled(fixedDelayString = "${outbox.users.relay-delay}")
+    public void relay() {
+        userChangeRelay.relay();
+    }
+}
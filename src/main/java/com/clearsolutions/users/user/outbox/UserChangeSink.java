@@ -0,0 +1,14 @@
+package com.clearsolutions.users.user.outbox;
+
+import com.clearsolutions.users.user.model.response.UserChangeEvent;
+
+import java.util.List;
+
+/**
+ * Destination of published user changes. A batch is marked published only if every sink accepts it,
+ * so a failing sink makes the relay retry the batch: delivery is at least once.
+ */
+public interface UserChangeSink {
+
+    void publish(List<UserChangeEvent> events) throws Exception;
+}
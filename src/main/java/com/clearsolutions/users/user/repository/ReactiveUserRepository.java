@@ -0,0 +1,117 @@
+package com.clearsolutions.users.user.repository;
+
+import com.clearsolutions.users.user.model.entity.Address;
+import com.clearsolutions.users.user.model.entity.User;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * R2DBC counterpart of {@link UserRepository} for the "reactive" profile. It works on the same users table
+ * and maps rows to the same {@link User} entity, so both stacks return identical JSON.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    private static final String COLUMNS = "id, email, first_name, last_name, birthday, phone, "
+            + "country, city, street, house_number, apartment_number";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveUserRepository(DatabaseClient reactiveDatabaseClient) {
+        this.databaseClient = reactiveDatabaseClient;
+    }
+
+    public Mono<User> findById(Long id) {
+        return databaseClient.sql("select " + COLUMNS + " from users where id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toUser)
+                .one();
+    }
+
+    /**
+     * Rows are emitted as the subscriber requests them, so a slow client holds back the fetch instead of
+     * the whole range being buffered.
+     */
+    public Flux<User> findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(LocalDate min, LocalDate max) {
+        return databaseClient.sql("select " + COLUMNS + " from users where birthday between :min and :max order by birthday, id")
+                .bind("min", min)
+                .bind("max", max)
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    /**
+     * Ids come from users_seq directly. JPA's pooled optimizer only hands out ids at or below the sequence
+     * values it fetched itself, so both stacks can write to the table at the same time.
+     */
+    public Mono<Long> insert(User user) {
+        return bindUser(databaseClient.sql("insert into users (" + COLUMNS + ") values (next value for users_seq, "
+                        + ":email, :firstName, :lastName, :birthday, :phone, "
+                        + ":country, :city, :street, :houseNumber, :apartmentNumber)"), user)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> update(User user) {
+        return bindUser(databaseClient.sql("update users set email = :email, first_name = :firstName, last_name = :lastName, "
+                        + "birthday = :birthday, phone = :phone, country = :country, city = :city, street = :street, "
+                        + "house_number = :houseNumber, apartment_number = :apartmentNumber where id = :id"), user)
+                .bind("id", user.getId())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteById(Long id) {
+        return databaseClient.sql("delete from users where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindUser(DatabaseClient.GenericExecuteSpec spec, User user) {
+        Address address = user.getAddress() == null ? new Address() : user.getAddress();
+
+        spec = bind(spec, "email", user.getEmail(), String.class);
+        spec = bind(spec, "firstName", user.getFirstName(), String.class);
+        spec = bind(spec, "lastName", user.getLastName(), String.class);
+        spec = bind(spec, "birthday", user.getBirthday(), LocalDate.class);
+        spec = bind(spec, "phone", user.getPhone(), String.class);
+        spec = bind(spec, "country", address.getCountry(), String.class);
+        spec = bind(spec, "city", address.getCity(), String.class);
+        spec = bind(spec, "street", address.getStreet(), String.class);
+        spec = bind(spec, "houseNumber", address.getHouseNumber(), Long.class);
+        return bind(spec, "apartmentNumber", address.getApartmentNumber(), Long.class);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec,
+                                                          String name, Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static User toUser(Readable row) {
+        Address address = Address.builder()
+                .country(row.get("country", String.class))
+                .city(row.get("city", String.class))
+                .street(row.get("street", String.class))
+                .houseNumber(row.get("house_number", Long.class))
+                .apartmentNumber(row.get("apartment_number", Long.class))
+                .build();
+
+        return User.builder()
+                .id(row.get("id", Long.class))
+                .email(row.get("email", String.class))
+                .firstName(row.get("first_name", String.class))
+                .lastName(row.get("last_name", String.class))
+                .birthday(row.get("birthday", LocalDate.class))
+                .phone(row.get("phone", String.class))
+                .address(address)
+                .build();
+    }
+}
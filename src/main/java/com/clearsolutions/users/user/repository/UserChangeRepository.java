@@ -0,0 +1,18 @@
+package com.clearsolutions.users.user.repository;
+
+import com.clearsolutions.users.user.model.entity.UserChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+    List<UserChange> findAllBySequenceIsNullOrderByIdAsc(Pageable pageable);
+
+    List<UserChange> findAllBySequenceGreaterThanOrderBySequenceAsc(long sequence, Pageable pageable);
+
+    @Query("select max(c.sequence) from UserChange c")
+    Long findMaxSequence();
+}
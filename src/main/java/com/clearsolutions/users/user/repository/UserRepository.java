@@ -1,8 +1,110 @@
-package com.clearsolutions.users.user.repository;
-
-import com.clearsolutions.users.user.model.entity.User;
-import org.springframework.data.jpa.repository.JpaRepository;
-
-public interface UserRepository extends JpaRepository<User, Long> {
-    boolean existsByEmail(String email);
-}
\ No newline at end of file
+package com.clearsolutions.users.user.repository;
+
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.response.UserCsvRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Queries run in read-only transactions unless they modify, like the inherited JpaRepository reads,
+ * so they can be served by a replica, see {@link com.clearsolutions.users.config.ReplicaRoutingDataSource}.
+ */
+@Transactional(readOnly = true)
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    int STREAM_FETCH_SIZE = 500;
+
+    Optional<User> findByEmail(String email);
+
+    @Transactional
+    @Modifying
+    @Query("delete from User u where u.id = :id")
+    int deleteUserById(@Param("id") Long id);
+
+    @Query("select u.birthday from User u where u.id = :id")
+    Optional<LocalDate> findBirthdayById(@Param("id") Long id);
+
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    List<User> findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(LocalDate minBirthday, LocalDate maxBirthday);
+
+    List<User> findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(LocalDate minBirthday, LocalDate maxBirthday, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    Stream<User> streamAllByBirthdayBetweenOrderByBirthdayAscIdAsc(LocalDate minBirthday, LocalDate maxBirthday);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select u.birthday, u.id from User u order by u.birthday, u.id")
+    Stream<Object[]> streamBirthdayIndexEntries();
+
+    @Query("select u.birthday, u.id from User u order by u.birthday, u.id")
+    List<Object[]> findBirthdayIndexEntries(Pageable pageable);
+
+    @Query("""
+            select u.birthday, u.id from User u
+            where u.birthday >= :afterBirthday
+              and (u.birthday > :afterBirthday or (u.birthday = :afterBirthday and u.id > :afterId))
+            order by u.birthday, u.id""")
+    List<Object[]> findBirthdayIndexEntriesAfter(@Param("afterBirthday") LocalDate afterBirthday,
+                                                 @Param("afterId") Long afterId,
+                                                 Pageable pageable);
+
+    @Query("select min(u.id) from User u")
+    Long findMinId();
+
+    @Query("select max(u.id) from User u")
+    Long findMaxId();
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("""
+            select new com.clearsolutions.users.user.model.response.UserCsvRow(u.id, u.email, u.firstName, u.lastName, u.birthday,
+                u.phone, u.address.country, u.address.city, u.address.street, u.address.houseNumber, u.address.apartmentNumber)
+            from User u where u.id between :fromId and :toId order by u.id""")
+    List<UserCsvRow> findCsvRowsByIdBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select u.id, u.email, u.firstName, u.lastName, u.address.city, u.birthday from User u")
+    Stream<Object[]> streamSearchIndexEntries();
+
+    /**
+     * Unranked fallback of the search index: users with a first name, last name, email or city starting with the prefix.
+     *
+     * @param prefix lower case LIKE pattern ending with %, with % and _ in the text escaped by a backslash
+     */
+    @Query("""
+            select u from User u
+            where u.birthday between :minBirthday and :maxBirthday
+              and (lower(u.firstName) like :prefix escape '\\' or lower(u.lastName) like :prefix escape '\\'
+                or u.email like :prefix escape '\\' or lower(u.address.city) like :prefix escape '\\')
+            order by u.id""")
+    List<User> searchByPrefix(@Param("minBirthday") LocalDate minBirthday,
+                              @Param("maxBirthday") LocalDate maxBirthday,
+                              @Param("prefix") String prefix,
+                              Pageable pageable);
+
+    @Query("""
+            select u from User u
+            where u.birthday between :minBirthday and :maxBirthday
+              and u.birthday >= :afterBirthday
+              and (u.birthday > :afterBirthday or (u.birthday = :afterBirthday and u.id > :afterId))
+            order by u.birthday, u.id""")
+    List<User> findPageAfter(@Param("minBirthday") LocalDate minBirthday,
+                             @Param("maxBirthday") LocalDate maxBirthday,
+                             @Param("afterBirthday") LocalDate afterBirthday,
+                             @Param("afterId") Long afterId,
+                             Pageable pageable);
+}
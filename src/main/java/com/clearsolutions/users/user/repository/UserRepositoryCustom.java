@@ -0,0 +1,29 @@
+package com.clearsolutions.users.user.repository;
+
+import com.clearsolutions.users.user.model.request.UserField;
+import com.clearsolutions.users.user.model.response.UserView;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Sets the given attributes of one user with a single UPDATE, without loading it first.
+     * Keys are attribute paths of {@link com.clearsolutions.users.user.model.entity.User}, e.g. "phone" or "address.city".
+     *
+     * @return number of updated rows, 0 when there is no user with this id
+     */
+    int updateFields(Long id, Map<String, Object> fields);
+
+    /**
+     * Users born between the bounds in (birthday, id) order, selecting only the columns of {@code fields}.
+     * With {@code afterBirthday} and {@code afterId} only users after that position are returned (keyset paging).
+     *
+     * @param limit maximum number of users, or null for all of them
+     */
+    List<UserView> findViewsByBirthdayBetween(LocalDate minBirthday, LocalDate maxBirthday, Set<UserField> fields,
+                                              LocalDate afterBirthday, Long afterId, Integer limit);
+}
@@ -0,0 +1,124 @@
+package com.clearsolutions.users.user.repository;
+
+import com.clearsolutions.users.user.model.entity.Address;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserField;
+import com.clearsolutions.users.user.model.response.UserView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int updateFields(Long id, Map<String, Object> fields) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<User> update = criteriaBuilder.createCriteriaUpdate(User.class);
+        Root<User> user = update.from(User.class);
+
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            update.set(path(user, field.getKey()), field.getValue());
+        }
+        update.where(criteriaBuilder.equal(user.get("id"), id));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserView> findViewsByBirthdayBetween(LocalDate minBirthday, LocalDate maxBirthday, Set<UserField> fields,
+                                                     LocalDate afterBirthday, Long afterId, Integer limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<User> user = query.from(User.class);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (UserField field : fields) {
+            for (String attribute : field.attributes()) {
+                selections.add(path(user, attribute).alias(alias(attribute)));
+            }
+        }
+        query.multiselect(selections);
+
+        Path<LocalDate> birthday = user.get("birthday");
+        Path<Long> id = user.get("id");
+        Predicate where = criteriaBuilder.between(birthday, minBirthday, maxBirthday);
+        if (afterBirthday != null){
+            where = criteriaBuilder.and(where, criteriaBuilder.greaterThanOrEqualTo(birthday, afterBirthday), criteriaBuilder.or(
+                    criteriaBuilder.greaterThan(birthday, afterBirthday),
+                    criteriaBuilder.and(criteriaBuilder.equal(birthday, afterBirthday), criteriaBuilder.greaterThan(id, afterId))));
+        }
+        query.where(where).orderBy(criteriaBuilder.asc(birthday), criteriaBuilder.asc(id));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (limit != null){
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList().stream()
+                .map(tuple -> toView(tuple, fields))
+                .toList();
+    }
+
+    private static UserView toView(Tuple tuple, Set<UserField> fields) {
+        UserView.UserViewBuilder view = UserView.builder();
+        if (fields.contains(UserField.ID)){
+            view.id(tuple.get("id", Long.class));
+        }
+        if (fields.contains(UserField.EMAIL)){
+            view.email(tuple.get("email", String.class));
+        }
+        if (fields.contains(UserField.FIRST_NAME)){
+            view.firstName(tuple.get("firstName", String.class));
+        }
+        if (fields.contains(UserField.LAST_NAME)){
+            view.lastName(tuple.get("lastName", String.class));
+        }
+        if (fields.contains(UserField.BIRTHDAY)){
+            view.birthday(tuple.get("birthday", LocalDate.class));
+        }
+        if (fields.contains(UserField.ADDRESS)){
+            view.address(Address.builder()
+                    .country(tuple.get("address_country", String.class))
+                    .city(tuple.get("address_city", String.class))
+                    .street(tuple.get("address_street", String.class))
+                    .houseNumber(tuple.get("address_houseNumber", Long.class))
+                    .apartmentNumber(tuple.get("address_apartmentNumber", Long.class))
+                    .build());
+        }
+        if (fields.contains(UserField.PHONE)){
+            view.phone(tuple.get("phone", String.class));
+        }
+        return view.build();
+    }
+
+    private static String alias(String attributePath) {
+        return attributePath.replace('.', '_');
+    }
+
+    private static Path<Object> path(Root<User> user, String attributePath) {
+        Path<Object> path = null;
+        for (String attribute : attributePath.split("\\.")) {
+            path = path == null ? user.get(attribute) : path.get(attribute);
+        }
+        return path;
+    }
+}
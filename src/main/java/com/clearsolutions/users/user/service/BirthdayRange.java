@@ -0,0 +1,22 @@
+package com.clearsolutions.users.user.service;
+
+import java.time.LocalDate;
+
+/**
+ * Inclusive birthday bounds equivalent to an inclusive age range on a given day.
+ * A user is {@code age} years old today when {@code Period.between(birthday, today).getYears() == age},
+ * so "age >= from" is "birthday <= today - from years" and "age <= to" is
+ * "birthday > today - (to + 1) years".
+ */
+public record BirthdayRange(LocalDate minBirthday, LocalDate maxBirthday) {
+
+    public static BirthdayRange of(int from, int to, LocalDate today) {
+        return new BirthdayRange(
+                today.minusYears(to + 1L).plusDays(1),
+                today.minusYears(from));
+    }
+
+    public boolean contains(LocalDate birthday) {
+        return !birthday.isBefore(minBirthday) && !birthday.isAfter(maxBirthday);
+    }
+}
@@ -0,0 +1,117 @@
+package com.clearsolutions.users.user.service;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.advice.exceptions.UserNotFoundException;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.repository.ReactiveUserRepository;
+import com.clearsolutions.users.user.validator.UserValidator;
+import io.r2dbc.spi.R2dbcException;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link UserService} for the "reactive" profile. Validation, email normalization and
+ * the age range bounds are the ones {@link UserService} uses; only the persistence calls differ.
+ */
+@Service
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactiveUserService {
+
+    private ReactiveUserRepository reactiveUserRepository;
+    private UserValidator userValidator;
+
+    public Mono<String> createUser(UserCreateRequest userCreateRequest) {
+
+        if (userCreateRequest == null)
+            return Mono.error(new BadRequestException("User cannot be null"));
+
+        return Mono.fromCallable(() -> getValidateUser(new User(), userCreateRequest.email(), userCreateRequest.firstName(),
+                        userCreateRequest.lastName(), userCreateRequest.birthday(), userCreateRequest.country(),
+                        userCreateRequest.city(), userCreateRequest.street(), userCreateRequest.houseNumber(),
+                        userCreateRequest.apartmentNumber(), userCreateRequest.phone()))
+                .flatMap(reactiveUserRepository::insert)
+                .onErrorMap(ReactiveUserService::badRequest)
+                .thenReturn("User was created successfully");
+    }
+
+    public Mono<String> updateUser(Long userId, UserUpdateRequest userUpdateRequest) {
+
+        if (userUpdateRequest == null){
+            return Mono.error(new BadRequestException("userUpdateRequest is null"));
+        }
+
+        List<String> errors = userValidator.validatePatch(userUpdateRequest.email(), userUpdateRequest.firstName(),
+                userUpdateRequest.lastName(), userUpdateRequest.birthday());
+        if (!errors.isEmpty()){
+            return Mono.error(new BadRequestException(String.join(" ", errors)));
+        }
+
+        return reactiveUserRepository.findById(userId)
+                .switchIfEmpty(Mono.error(UserNotFoundException::new))
+                .map(user -> UserService.applyPatch(user, userUpdateRequest))
+                .flatMap(reactiveUserRepository::update)
+                .onErrorMap(ReactiveUserService::badRequest)
+                .filter(updated -> updated > 0)
+                .switchIfEmpty(Mono.error(UserNotFoundException::new))
+                .thenReturn("User was updated successfully");
+    }
+
+    /**
+     * Constraint failures are told apart as in {@link UserService}. R2DBC reports a value too long for its column
+     * as an uncategorized exception with a data exception SQLState (class 22), where JPA reports
+     * a DataIntegrityViolationException.
+     */
+    private static Throwable badRequest(Throwable e) {
+        if (e instanceof DataIntegrityViolationException violation){
+            return new BadRequestException(UserService.violationMessage(violation));
+        }
+        if (e.getCause() instanceof R2dbcException r2dbcException && r2dbcException.getSqlState() != null
+                && r2dbcException.getSqlState().startsWith("22")){
+            return new BadRequestException("Invalid user!");
+        }
+        return e;
+    }
+
+    public Mono<String> deleteUser(Long userId) {
+        return reactiveUserRepository.deleteById(userId)
+                .filter(deleted -> deleted > 0)
+                .switchIfEmpty(Mono.error(UserNotFoundException::new))
+                .thenReturn("User was deleted successfully");
+    }
+
+    public Mono<User> getUser(Long userId) {
+        return reactiveUserRepository.findById(userId)
+                .switchIfEmpty(Mono.error(UserNotFoundException::new));
+    }
+
+    public Flux<User> getUsersByAgeRange(int from, int to) {
+        if (from > to){
+            return Flux.error(new BadRequestException("“From” must be less than “To”!"));
+        }
+
+        BirthdayRange range = BirthdayRange.of(from, to, LocalDate.now());
+        return reactiveUserRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(range.minBirthday(), range.maxBirthday());
+    }
+
+    private User getValidateUser(User user,
+                                 String email, String firstName, String lastName, LocalDate birthday, String country,
+                                 String city, String street, Long houseNumber, Long apartmentNumber, String phone) {
+
+        List<String> errors = userValidator.validate(email, firstName, lastName, birthday);
+        if (!errors.isEmpty()){
+            throw new BadRequestException(String.join(" ", errors));
+        }
+
+        return UserService.fillUser(user, email, firstName, lastName, birthday, country, city, street, houseNumber, apartmentNumber, phone);
+    }
+}
@@ -0,0 +1,294 @@
+package com.clearsolutions.users.user.service;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.model.properties.UserCsvProperties;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.response.UserCsvRow;
+import com.clearsolutions.users.user.model.response.UserImportError;
+import com.clearsolutions.users.user.model.response.UserImportResult;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.shard.UserShards;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Whole-table CSV export and import for bulk moves of the users table. Both sides work in chunks of chunk-size
+ * on a fork-join pool of the configured parallelism, with at most two chunks per worker in flight,
+ * so memory use depends on the chunk size and not on the size of the table or the file.
+ */
+@Service
+public class UserCsvService implements DisposableBean {
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final DateTimeFormatter BIRTHDAY_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final UserCsvProperties userCsvProperties;
+    private final CsvMapper csvMapper;
+    private final CsvSchema schema;
+    private final ForkJoinPool pool;
+
+    public UserCsvService(UserService userService, UserRepository userRepository, UserShards userShards,
+                          UserCsvProperties userCsvProperties) {
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.userCsvProperties = userCsvProperties;
+        this.csvMapper = CsvMapper.builder()
+                .addModule(new JavaTimeModule())
+                .propertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+                .build();
+        this.schema = csvMapper.schemaFor(UserCsvRow.class);
+        this.pool = new ForkJoinPool(userCsvProperties.getParallelism());
+    }
+
+    /**
+     * Writes every user ordered by id, with a header line. Id ranges of chunk-size are read in parallel,
+     * each in its own read-only transaction, so the export is not a single snapshot of a table being written to.
+     * With sharding every shard is read for each id range and the rows merged by id.
+     */
+    public void exportUsers(OutputStream outputStream) throws IOException {
+        WritableByteChannel channel = Channels.newChannel(outputStream);
+        StringJoiner header = new StringJoiner(",", "", "\n");
+        schema.forEach(column -> header.add(column.getName()));
+        write(channel, header.toString().getBytes(StandardCharsets.UTF_8));
+
+        Long minId = userShards.scatter(shard -> userRepository.findMinId()).stream()
+                .filter(Objects::nonNull).min(Comparator.naturalOrder()).orElse(null);
+        Long maxId = userShards.scatter(shard -> userRepository.findMaxId()).stream()
+                .filter(Objects::nonNull).max(Comparator.naturalOrder()).orElse(null);
+        if (minId == null){
+            return;
+        }
+
+        ObjectWriter writer = csvMapper.writer(schema.withoutHeader());
+        int chunkSize = userCsvProperties.getChunkSize();
+        Deque<ForkJoinTask<byte[]>> inFlight = new ArrayDeque<>();
+        try {
+            for (long fromId = minId; fromId <= maxId; fromId += chunkSize) {
+                long first = fromId;
+                long last = Math.min(fromId + chunkSize - 1, maxId);
+                inFlight.add(pool.submit(() -> encode(writer, userShards.gather(shard -> userRepository.findCsvRowsByIdBetween(first, last),
+                        Comparator.comparing(UserCsvRow::id), Integer.MAX_VALUE))));
+                if (inFlight.size() == maxInFlight()){
+                    write(channel, inFlight.poll().join());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(channel, inFlight.poll().join());
+            }
+        } finally {
+            inFlight.forEach(task -> task.cancel(true));
+        }
+    }
+
+    /**
+     * Reads a CSV file with a header line in the column layout of {@link UserCsvRow}, in any column order; an id column is ignored.
+     * Records are split off sequentially, then each chunk is converted and created by {@link UserService#importUsers}
+     * in parallel: the same validation as a single create and one batched insert per chunk.
+     * Only the first {@value #MAX_REPORTED_ERRORS} invalid rows are reported.
+     */
+    public UserImportResult importUsers(InputStream inputStream) throws IOException {
+        int created = 0;
+        List<UserImportError> errors = new ArrayList<>();
+        Deque<ForkJoinTask<UserImportResult>> inFlight = new ArrayDeque<>();
+        long firstRow = 0;
+        List<String[]> chunk = new ArrayList<>(userCsvProperties.getChunkSize());
+
+        try (MappingIterator<String[]> records = csvMapper.readerFor(String[].class)
+                .with(CsvParser.Feature.WRAP_AS_ARRAY)
+                .readValues(inputStream)) {
+            if (!records.hasNext()){
+                return new UserImportResult(0, List.of());
+            }
+            Map<String, Integer> columns = columns(records.next());
+
+            while (records.hasNext()) {
+                chunk.add(records.next());
+                if (chunk.size() == userCsvProperties.getChunkSize()){
+                    inFlight.add(submit(chunk, columns, firstRow));
+                    firstRow += chunk.size();
+                    chunk = new ArrayList<>(userCsvProperties.getChunkSize());
+                    if (inFlight.size() == maxInFlight()){
+                        created += collect(inFlight.poll().join(), errors);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()){
+                inFlight.add(submit(chunk, columns, firstRow));
+            }
+            while (!inFlight.isEmpty()) {
+                created += collect(inFlight.poll().join(), errors);
+            }
+        } catch (JsonProcessingException | RuntimeJsonMappingException e) {
+            throw malformed(firstRow + chunk.size());
+        } catch (RuntimeException e) {
+            // MappingIterator wraps parse errors, such as an unterminated quote, in a plain RuntimeException
+            if (e.getCause() instanceof JsonProcessingException){
+                throw malformed(firstRow + chunk.size());
+            }
+            throw e;
+        } finally {
+            // chunks already submitted still complete: they are independent transactions
+            inFlight.forEach(ForkJoinTask::quietlyJoin);
+        }
+
+        return new UserImportResult(created, errors);
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    private BadRequestException malformed(long row) {
+        return new BadRequestException("Malformed user at row " + row + "!");
+    }
+
+    private ForkJoinTask<UserImportResult> submit(List<String[]> records, Map<String, Integer> columns, long firstRow) {
+        return pool.submit(() -> importChunk(records, columns, firstRow));
+    }
+
+    /**
+     * Rows whose numbers or birthday do not parse are passed on as null and reported with the parse error instead.
+     */
+    private UserImportResult importChunk(List<String[]> records, Map<String, Integer> columns, long firstRow) {
+        List<UserCreateRequest> requests = new ArrayList<>(records.size());
+        Map<Long, String> parseErrors = new HashMap<>();
+
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                requests.add(request(records.get(i), columns));
+            } catch (IllegalArgumentException e) {
+                requests.add(null);
+                parseErrors.put(firstRow + i, e.getMessage());
+            }
+        }
+
+        UserImportResult result = userService.importUsers(requests, firstRow);
+        if (parseErrors.isEmpty()){
+            return result;
+        }
+        return new UserImportResult(result.created(), result.errors().stream()
+                .map(error -> parseErrors.containsKey(error.row()) ? new UserImportError(error.row(), parseErrors.get(error.row())) : error)
+                .toList());
+    }
+
+    private static UserCreateRequest request(String[] record, Map<String, Integer> columns) {
+        return UserCreateRequest.builder()
+                .email(value(record, columns, "email"))
+                .firstName(value(record, columns, "first_name"))
+                .lastName(value(record, columns, "last_name"))
+                .birthday(birthday(value(record, columns, "birthday")))
+                .phone(value(record, columns, "phone"))
+                .country(value(record, columns, "country"))
+                .city(value(record, columns, "city"))
+                .street(value(record, columns, "street"))
+                .houseNumber(number(value(record, columns, "house_number"), "Invalid house number!"))
+                .apartmentNumber(number(value(record, columns, "apartment_number"), "Invalid apartment number!"))
+                .build();
+    }
+
+    private static String value(String[] record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.length || record[index].isEmpty()){
+            return null;
+        }
+        return record[index];
+    }
+
+    private static LocalDate birthday(String value) {
+        try {
+            return value == null ? null : LocalDate.parse(value, BIRTHDAY_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid birthday!");
+        }
+    }
+
+    private static Long number(String value, String error) {
+        try {
+            return value == null ? null : Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    private static Map<String, Integer> columns(String[] header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            columns.putIfAbsent(header[i].strip().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("email")){
+            throw new BadRequestException("CSV header must name the user columns!");
+        }
+        return columns;
+    }
+
+    private static int collect(UserImportResult result, List<UserImportError> errors) {
+        for (UserImportError error : result.errors()) {
+            if (errors.size() == MAX_REPORTED_ERRORS){
+                break;
+            }
+            errors.add(error);
+        }
+        return result.created();
+    }
+
+    private static byte[] encode(ObjectWriter writer, List<UserCsvRow> rows) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 128);
+            writer.writeValues(bytes).writeAll(rows).close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(WritableByteChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private int maxInFlight() {
+        return userCsvProperties.getParallelism() * 2;
+    }
+}
@@ -0,0 +1,43 @@
+package com.clearsolutions.users.user.service;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.model.entity.User;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Position of the last user of a page in the (birthday, id) ordering.
+ * Clients only see it as an opaque url-safe token.
+ */
+public record UserCursor(LocalDate birthday, Long id) {
+
+    /**
+     * The same ordering of users; per-shard results sorted by it are merged with it.
+     */
+    public static final Comparator<User> USER_ORDER = Comparator.comparing(User::getBirthday).thenComparing(User::getId);
+
+    public static UserCursor of(User user) {
+        return new UserCursor(user.getBirthday(), user.getId());
+    }
+
+    public static UserCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 2) {
+                throw new BadRequestException("Invalid cursor!");
+            }
+            return new UserCursor(LocalDate.ofEpochDay(Long.parseLong(parts[0])), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new BadRequestException("Invalid cursor!");
+        }
+    }
+
+    public String encode() {
+        String raw = birthday.toEpochDay() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
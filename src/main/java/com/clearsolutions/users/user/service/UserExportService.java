@@ -0,0 +1,78 @@
+package com.clearsolutions.users.user.service;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.shard.UserShards;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@Service
+@AllArgsConstructor
+public class UserExportService {
+
+    private static final int SHARD_PAGE_SIZE = 1000;
+
+    private UserRepository userRepository;
+    private UserShards userShards;
+    private ObjectMapper objectMapper;
+    private EntityManager entityManager;
+
+    /**
+     * Writes users in the age range as newline-delimited JSON, in the same order as {@code GET /users}.
+     * Rows are read through a scrollable cursor and detached once written, so memory use does not grow with the result.
+     * With sharding the shards are read a page at a time instead and merged, see {@link UserShards#mergePages}.
+     */
+    @Transactional(readOnly = true)
+    public void exportUsersByAgeRange(int from, int to, OutputStream outputStream) throws IOException {
+        if (from > to){
+            throw new BadRequestException("“From” must be less than “To”!");
+        }
+
+        BirthdayRange range = BirthdayRange.of(from, to, LocalDate.now());
+        ObjectWriter writer = objectMapper.writerFor(User.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (Stream<User> users = streamUsers(range);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                User user = iterator.next();
+                writer.writeValue(generator, user);
+                generator.writeRaw('\n');
+                entityManager.detach(user);
+            }
+        }
+    }
+
+    private Stream<User> streamUsers(BirthdayRange range) {
+        if (!userShards.isEnabled()){
+            return userRepository.streamAllByBirthdayBetweenOrderByBirthdayAscIdAsc(range.minBirthday(), range.maxBirthday());
+        }
+
+        Pageable page = PageRequest.of(0, SHARD_PAGE_SIZE);
+        Iterator<User> users = userShards.mergePages(last -> last == null
+                ? userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(range.minBirthday(), range.maxBirthday(), page)
+                : userRepository.findPageAfter(range.minBirthday(), range.maxBirthday(), last.getBirthday(), last.getId(), page),
+                UserCursor.USER_ORDER);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(users, Spliterator.ORDERED), false);
+    }
+}
@@ -0,0 +1,72 @@
+package com.clearsolutions.users.user.service;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.response.UserImportError;
+import com.clearsolutions.users.user.model.response.UserImportResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@AllArgsConstructor
+public class UserImportService {
+
+    static final int CHUNK_SIZE = 500;
+
+    private UserService userService;
+    private ObjectMapper objectMapper;
+
+    /**
+     * Reads a JSON array or newline-delimited JSON of {@link UserCreateRequest} and creates the users chunk by chunk.
+     * Invalid rows are reported in the result and do not stop the import; chunks created before a malformed
+     * document is found stay created.
+     */
+    public UserImportResult importUsers(InputStream inputStream) throws IOException {
+        int created = 0;
+        List<UserImportError> errors = new ArrayList<>();
+        List<UserCreateRequest> chunk = new ArrayList<>(CHUNK_SIZE);
+        long firstRow = 0;
+
+        try (MappingIterator<UserCreateRequest> requests = objectMapper.readerFor(UserCreateRequest.class).readValues(inputStream)) {
+            while (requests.hasNext()) {
+                chunk.add(requests.next());
+                if (chunk.size() == CHUNK_SIZE) {
+                    UserImportResult result = userService.importUsers(chunk, firstRow);
+                    created += result.created();
+                    errors.addAll(result.errors());
+                    firstRow += chunk.size();
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException | RuntimeJsonMappingException e) {
+            throw malformed(firstRow + chunk.size());
+        } catch (RuntimeException e) {
+            // MappingIterator wraps parse errors, such as an unclosed object, in a plain RuntimeException
+            if (e.getCause() instanceof JsonProcessingException){
+                throw malformed(firstRow + chunk.size());
+            }
+            throw e;
+        }
+
+        if (!chunk.isEmpty()) {
+            UserImportResult result = userService.importUsers(chunk, firstRow);
+            created += result.created();
+            errors.addAll(result.errors());
+        }
+
+        return new UserImportResult(created, errors);
+    }
+
+    private BadRequestException malformed(long row) {
+        return new BadRequestException("Malformed user at row " + row + "!");
+    }
+}
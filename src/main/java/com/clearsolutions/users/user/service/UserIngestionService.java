@@ -0,0 +1,228 @@
+package com.clearsolutions.users.user.service;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.advice.exceptions.TooManyRequestsException;
+import com.clearsolutions.users.user.model.properties.UserIngestionProperties;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.response.UserImportError;
+import com.clearsolutions.users.user.model.response.UserIngestionStatus;
+import com.clearsolutions.users.user.validator.UserValidator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind mode of {@link UserService#createUser}. A request is validated and its email reserved on submit,
+ * then queued and acknowledged with a tracking id without touching the database. One writer thread drains
+ * the queue and creates up to batch-size users at a time through {@link UserService#importUsers}, so each batch
+ * is one existing-email query and one saveAll transaction. A full queue is rejected rather than waited on.
+ * <p>
+ * An email stays reserved from submit until its batch is written, so a second create with the same email is
+ * rejected while the first is queued. Once written, the users table rejects it: importUsers looks up taken emails
+ * and the uk_users_email index catches the rest. Outcomes, with the id of a created user, are kept for status-retention,
+ * see {@link #getStatus}.
+ */
+@Slf4j
+@Service
+public class UserIngestionService implements InitializingBean, DisposableBean {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final UserService userService;
+    private final UserValidator userValidator;
+    private final UserIngestionProperties userIngestionProperties;
+    private final BlockingQueue<QueuedUser> queue;
+    private final Map<String, String> reservedEmails = new ConcurrentHashMap<>();
+    private final Cache<String, UserIngestionStatus> statuses;
+
+    /** Shared to check accepting and queue a request, exclusive to stop accepting: nothing is queued after the final drain. */
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private boolean accepting = true;
+    private volatile boolean running;
+    private Thread writer;
+
+    public UserIngestionService(UserService userService, UserValidator userValidator,
+                                UserIngestionProperties userIngestionProperties, MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.userValidator = userValidator;
+        this.userIngestionProperties = userIngestionProperties;
+        this.queue = new ArrayBlockingQueue<>(userIngestionProperties.getQueueCapacity());
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(userIngestionProperties.getStatusMaximumSize())
+                .expireAfterWrite(userIngestionProperties.getStatusRetention())
+                .build();
+        Gauge.builder("users.ingestion.queue", queue, Collection::size)
+                .description("Create requests waiting for the write-behind writer")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return userIngestionProperties.getEnabled();
+    }
+
+    /**
+     * @return the pending status of the queued request, with its tracking id
+     * @throws TooManyRequestsException when the queue is full or the service is shutting down
+     */
+    public UserIngestionStatus submit(UserCreateRequest request) {
+        if (request == null)
+            throw new BadRequestException("User cannot be null");
+
+        List<String> errors = userValidator.validate(request.email(), request.firstName(), request.lastName(), request.birthday());
+        if (!errors.isEmpty()){
+            throw new BadRequestException(String.join(" ", errors));
+        }
+
+        acceptLock.readLock().lock();
+        try {
+            if (!accepting){
+                throw new TooManyRequestsException("User creation is shutting down, retry later");
+            }
+
+            String email = UserService.normalizeEmail(request.email());
+            String trackingId = UUID.randomUUID().toString();
+            if (reservedEmails.putIfAbsent(email, trackingId) != null){
+                throw new BadRequestException("Invalid email!");
+            }
+
+            UserIngestionStatus pending = status(trackingId, UserIngestionStatus.State.PENDING, null, null);
+            statuses.put(trackingId, pending);
+            if (!queue.offer(new QueuedUser(trackingId, email, request))){
+                statuses.invalidate(trackingId);
+                reservedEmails.remove(email, trackingId);
+                throw new TooManyRequestsException("Too many users are waiting to be created, retry later");
+            }
+
+            return pending;
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return empty when the tracking id is unknown or its outcome is older than status-retention
+     */
+    public Optional<UserIngestionStatus> getStatus(String trackingId) {
+        return Optional.ofNullable(statuses.getIfPresent(trackingId));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (isEnabled()){
+            running = true;
+            writer = new Thread(this::run, "user-ingestion-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Stops accepting requests and lets the writer finish what is already queued.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        running = false;
+        if (writer != null){
+            writer.join(SHUTDOWN_TIMEOUT.toMillis());
+            if (writer.isAlive()){
+                log.warn("User ingestion writer did not finish within {}, {} requests left in the queue", SHUTDOWN_TIMEOUT, queue.size());
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                QueuedUser first = queue.poll(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                if (first != null){
+                    List<QueuedUser> batch = new ArrayList<>(userIngestionProperties.getBatchSize());
+                    batch.add(first);
+                    queue.drainTo(batch, userIngestionProperties.getBatchSize() - 1);
+                    write(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Writes everything queued, batch by batch, on the calling thread.
+     *
+     * @return the number of requests written
+     */
+    int drain() {
+        int written = 0;
+        List<QueuedUser> batch = new ArrayList<>(userIngestionProperties.getBatchSize());
+        while (queue.drainTo(batch, userIngestionProperties.getBatchSize()) > 0) {
+            write(batch);
+            written += batch.size();
+            batch.clear();
+        }
+        return written;
+    }
+
+    private void write(List<QueuedUser> batch) {
+        Map<Long, Long> userIds = new HashMap<>();
+        Map<Long, String> errors;
+        try {
+            errors = userService.importUsers(batch.stream().map(QueuedUser::request).toList(), 0, userIds).errors().stream()
+                    .collect(Collectors.toMap(UserImportError::row, UserImportError::message));
+        } catch (RuntimeException e) {
+            // importUsers reports a shard part that fails in the errors, so nothing of the batch was written here
+            log.error("Could not create {} queued users", batch.size(), e);
+            errors = null;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            QueuedUser queued = batch.get(i);
+            String error = errors == null ? "User could not be created" : errors.get((long) i);
+            statuses.put(queued.trackingId(), error == null
+                    ? status(queued.trackingId(), UserIngestionStatus.State.CREATED, userIds.get((long) i), null)
+                    : status(queued.trackingId(), UserIngestionStatus.State.FAILED, null, error));
+            reservedEmails.remove(queued.email(), queued.trackingId());
+        }
+    }
+
+    private static UserIngestionStatus status(String trackingId, UserIngestionStatus.State state, Long userId, String message) {
+        return UserIngestionStatus.builder()
+                .trackingId(trackingId)
+                .status(state)
+                .userId(userId)
+                .message(message)
+                .build();
+    }
+
+    private record QueuedUser(String trackingId, String email, UserCreateRequest request) {
+    }
+}
@@ -1,137 +1,657 @@
-package com.clearsolutions.users.user.service;
-
-import com.clearsolutions.users.advice.exceptions.BadRequestException;
-import com.clearsolutions.users.advice.exceptions.UserNotFoundException;
-import com.clearsolutions.users.user.model.entity.Address;
-import com.clearsolutions.users.user.model.entity.User;
-import com.clearsolutions.users.user.model.properties.UserProperties;
-import com.clearsolutions.users.user.model.request.UserCreateRequest;
-import com.clearsolutions.users.user.model.request.UserUpdateRequest;
-import com.clearsolutions.users.user.repository.UserRepository;
-import lombok.AllArgsConstructor;
-import org.springframework.stereotype.Service;
-
-import java.time.LocalDate;
-import java.time.Period;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.regex.Pattern;
-
-@Service
-@AllArgsConstructor
-public class UserService {
-
-    private UserRepository userRepository;
-    private UserProperties userProperties;
-
-    public String createUser(UserCreateRequest userCreateRequest) {
-
-        if (userCreateRequest == null)
-            throw new BadRequestException("User cannot be null");
-
-        userRepository.save(getValidateUser(userCreateRequest));
-
-        return "User was created successfully";
-    }
-
-    public String updateUser(Long userId, UserUpdateRequest userUpdateRequest) {
-
-        if (userUpdateRequest == null){
-            throw new BadRequestException("userUpdateRequest is null");
-        }
-
-        User user = userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
-
-
-
-        userRepository.save(getValidateUser(user, userUpdateRequest));
-
-        return "User was updated successfully";
-    }
-
-    public String deleteUser(Long userId) {
-
-        userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
-
-        userRepository.deleteById(userId);
-
-        return "User was deleted successfully";
-    }
-
-    public List<User> getUsersByAgeRange(int from, int to) {
-        if (from > to){
-            throw new BadRequestException("“From” must be less than “To”!");
-        }
-
-        List<User> users = userRepository.findAll();
-
-        List<User> usersInAgeRange = new ArrayList<>();
-
-        for (User user : users) {
-            int age = Period.between(user.getBirthday(), LocalDate.now()).getYears();
-            if (age >= from && age <= to) {
-                usersInAgeRange.add(user);
-            }
-        }
-
-        return usersInAgeRange.stream().sorted(Comparator.comparing(User::getBirthday)).toList();
-    }
-
-    private User getValidateUser(UserCreateRequest request){
-        User user = new User();
-
-        return validateUser(user,
-                request.email(), request.firstName(), request.lastName(), request.birthday(), request.country(),
-                request.city(), request.street(), request.houseNumber(), request.apartmentNumber(), request.phone());
-    }
-
-    private User getValidateUser(User user, UserUpdateRequest request){
-        return validateUser(user,
-                request.email(), request.firstName(), request.lastName(), request.birthday(), request.country(),
-                request.city(), request.street(), request.houseNumber(), request.apartmentNumber(), request.phone());
-    }
-
-    private User validateUser(User user,
-                              String email, String firstName, String lastName, LocalDate birthday, String country,
-                              String city, String street, Long houseNumber, Long apartmentNumber, String phone) {
-
-        if (email.isBlank() || !Pattern.compile(userProperties.getUserEmailRegex()).matcher(email).matches() || userRepository.existsByEmail(email)){
-            throw new BadRequestException("Invalid email!");
-        }else {
-            user.setEmail(email);
-        }
-
-        if (firstName == null || firstName.isEmpty()){
-            throw new BadRequestException("First name cannot be null!");
-        }else {
-            user.setFirstName(firstName);
-        }
-
-        if (lastName == null || lastName.isEmpty()){
-            throw new BadRequestException("Last name cannot be null!");
-        }else {
-            user.setLastName(lastName);
-        }
-
-        if (birthday ==  null){
-            throw new BadRequestException("Invalid birthday!");
-        }else if (birthday.isAfter(LocalDate.now().minusYears(userProperties.getUserMinAge()))){
-            throw new BadRequestException("User must be 18!");
-        }else {
-            user.setBirthday(birthday);
-        }
-
-        Address address = Address.builder()
-                .country(country)
-                .city(city)
-                .street(street)
-                .houseNumber(houseNumber)
-                .apartmentNumber(apartmentNumber)
-                .build();
-        user.setAddress(address);
-
-        user.setPhone(phone);
-        return user;
-    }
-}
+package com.clearsolutions.users.user.service;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.advice.exceptions.UserNotFoundException;
+import com.clearsolutions.users.user.cache.AgeRangeCache;
+import com.clearsolutions.users.user.cache.UserCache;
+import com.clearsolutions.users.user.cache.UserTableVersion;
+import com.clearsolutions.users.user.index.BirthdayIndex;
+import com.clearsolutions.users.user.index.UserSearchIndex;
+import com.clearsolutions.users.user.model.entity.Address;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserField;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.model.response.UserCacheStats;
+import com.clearsolutions.users.user.model.response.UserImportError;
+import com.clearsolutions.users.user.model.response.UserImportResult;
+import com.clearsolutions.users.user.model.response.UserPage;
+import com.clearsolutions.users.user.model.response.UserView;
+import com.clearsolutions.users.user.model.response.UserViewPage;
+import com.clearsolutions.users.user.outbox.UserChangeOutbox;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.shard.UserDirectory;
+import com.clearsolutions.users.user.shard.UserShards;
+import com.clearsolutions.users.user.validator.UserValidator;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Slf4j
+@Service
+@AllArgsConstructor
+public class UserService {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final Comparator<UserView> VIEW_ORDER = Comparator.comparing(UserView::birthday).thenComparing(UserView::id);
+
+    private UserRepository userRepository;
+    private UserValidator userValidator;
+    private UserCache userCache;
+    private AgeRangeCache ageRangeCache;
+    private BirthdayIndex birthdayIndex;
+    private UserTableVersion userTableVersion;
+    private UserSearchIndex userSearchIndex;
+    private UserChangeOutbox userChangeOutbox;
+    private UserShards userShards;
+    private UserDirectory userDirectory;
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * The user and its change event are written in one transaction, see {@link UserChangeOutbox}.
+     * With sharding the id is taken from the {@link UserDirectory} first, so the transaction runs on the user's shard.
+     */
+    @Transactional
+    public String createUser(UserCreateRequest userCreateRequest) {
+
+        if (userCreateRequest == null)
+            throw new BadRequestException("User cannot be null");
+
+        User user = getValidateUser(userCreateRequest);
+        userDirectory.assignId(user);
+        userShards.runOnShardOf(user.getId(), () -> {
+            reserveEmail(user.getEmail(), user.getId());
+            flushUser(user);
+            userChangeOutbox.created(List.of(user));
+        });
+        onUserCreated(user);
+
+        return "User was created successfully";
+    }
+
+    /**
+     * Merge-patch: only the non-null fields of the request are validated and written.
+     * Without a birthday it is a single UPDATE of those columns and a missing user is detected from the row count.
+     * A new birthday moves the user within the age range cache and the birthday index, which need the old row,
+     * so that case loads the managed entity and flushes the changed columns ({@code @DynamicUpdate} on {@link User}).
+     */
+    @Transactional
+    public String updateUser(Long userId, UserUpdateRequest userUpdateRequest) {
+
+        if (userUpdateRequest == null){
+            throw new BadRequestException("userUpdateRequest is null");
+        }
+
+        List<String> errors = userValidator.validatePatch(userUpdateRequest.email(), userUpdateRequest.firstName(),
+                userUpdateRequest.lastName(), userUpdateRequest.birthday());
+        if (!errors.isEmpty()){
+            throw new BadRequestException(String.join(" ", errors));
+        }
+
+        userShards.runOnShardOf(userId, () -> {
+            if (userUpdateRequest.email() != null){
+                String email = normalizeEmail(userUpdateRequest.email());
+                reserveEmail(email, userId);
+                userDirectory.releaseOthers(userId, email);
+            }
+
+            if (userUpdateRequest.birthday() != null){
+                User user = userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
+                LocalDate oldBirthday = user.getBirthday();
+
+                User saved = flushUser(applyPatch(user, userUpdateRequest));
+                AfterCommit.run(() -> {
+                    userCache.evict(userId);
+                    ageRangeCache.update(saved);
+                    birthdayIndex.move(userId, oldBirthday, saved.getBirthday());
+                    userSearchIndex.update(saved);
+                });
+            }else {
+                if (updateFields(userId, patchedFields(userUpdateRequest)) == 0){
+                    throw new UserNotFoundException();
+                }
+                AfterCommit.run(() -> {
+                    userCache.evict(userId);
+                    ageRangeCache.patch(userId, cached -> applyPatch(cached.toBuilder().build(), userUpdateRequest));
+                    userSearchIndex.patch(userId, indexed -> applyPatch(indexed, userUpdateRequest));
+                });
+            }
+            userChangeOutbox.updated(userId, applyPatch(new User(), userUpdateRequest));
+        });
+        AfterCommit.run(userTableVersion::bump);
+
+        return "User was updated successfully";
+    }
+
+    @Transactional
+    public String deleteUser(Long userId) {
+
+        userShards.runOnShardOf(userId, () -> {
+            // the birthday index key holds the birthday, which the delete does not return
+            LocalDate birthday = birthdayIndex.isEnabled() ? userRepository.findBirthdayById(userId).orElse(null) : null;
+            if (userRepository.deleteUserById(userId) == 0){
+                throw new UserNotFoundException();
+            }
+            userChangeOutbox.deleted(userId);
+            if (birthday != null){
+                AfterCommit.run(() -> birthdayIndex.remove(userId, birthday));
+            }
+        });
+        userDirectory.release(userId);
+        AfterCommit.run(() -> {
+            userCache.evict(userId);
+            ageRangeCache.remove(userId);
+            userSearchIndex.remove(userId);
+        });
+        AfterCommit.run(userTableVersion::bump);
+
+        return "User was deleted successfully";
+    }
+
+    public User getUser(Long userId) {
+        return userCache.findById(userId).orElseThrow(UserNotFoundException::new);
+    }
+
+    public User getUserByEmail(String email) {
+        if (email == null || email.isBlank()){
+            throw new BadRequestException("Invalid email!");
+        }
+
+        return userCache.findByEmail(normalizeEmail(email)).orElseThrow(UserNotFoundException::new);
+    }
+
+    /**
+     * ETag of every age-range listing, see {@link UserTableVersion}.
+     */
+    public String getUsersETag() {
+        return userTableVersion.etag();
+    }
+
+    public UserCacheStats getUserCacheStats() {
+        return userCache.stats();
+    }
+
+    public List<User> getUsersByAgeRange(int from, int to) {
+        if (from > to){
+            throw new BadRequestException("“From” must be less than “To”!");
+        }
+
+        return ageRangeCache.find(from, to);
+    }
+
+    /**
+     * Age range listing restricted to the requested fields. Only their columns are selected, so it reads
+     * the database instead of the age range cache, which holds whole users. Id and birthday are always selected
+     * to merge the shards in order, and removed from the response when they were not requested.
+     *
+     * @param fields comma separated JSON names, see {@link UserField}
+     */
+    public List<UserView> getUserViewsByAgeRange(int from, int to, String fields) {
+        if (from > to){
+            throw new BadRequestException("“From” must be less than “To”!");
+        }
+
+        Set<UserField> selected = UserField.parse(fields);
+        Set<UserField> queried = EnumSet.copyOf(selected);
+        queried.add(UserField.ID);
+        queried.add(UserField.BIRTHDAY);
+
+        BirthdayRange range = BirthdayRange.of(from, to, LocalDate.now());
+        return userShards.gather(shard -> userRepository.findViewsByBirthdayBetween(range.minBirthday(), range.maxBirthday(),
+                        queried, null, null, null), VIEW_ORDER, Integer.MAX_VALUE)
+                .stream()
+                .map(view -> view.only(selected))
+                .toList();
+    }
+
+    /**
+     * Same as {@link #getUsersPageByAgeRange} with only the requested fields. Id and birthday are always selected
+     * because the cursor is built from them, and removed from the response when they were not requested.
+     */
+    public UserViewPage getUserViewsPageByAgeRange(int from, int to, String fields, String cursor, int size) {
+        if (from > to){
+            throw new BadRequestException("“From” must be less than “To”!");
+        }
+
+        if (size < 1 || size > MAX_PAGE_SIZE){
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE + "!");
+        }
+
+        Set<UserField> selected = UserField.parse(fields);
+        Set<UserField> queried = EnumSet.copyOf(selected);
+        queried.add(UserField.ID);
+        queried.add(UserField.BIRTHDAY);
+
+        BirthdayRange range = BirthdayRange.of(from, to, LocalDate.now());
+        UserCursor after = cursor == null || cursor.isBlank() ? null : UserCursor.decode(cursor);
+        List<UserView> views = userShards.gather(shard -> userRepository.findViewsByBirthdayBetween(range.minBirthday(),
+                range.maxBirthday(), queried, after == null ? null : after.birthday(), after == null ? null : after.id(), size + 1),
+                VIEW_ORDER, size + 1);
+
+        String nextCursor = null;
+        if (views.size() > size){
+            views = views.subList(0, size);
+            UserView last = views.get(size - 1);
+            nextCursor = new UserCursor(last.birthday(), last.id()).encode();
+        }
+
+        return UserViewPage.builder()
+                .users(views.stream().map(view -> view.only(selected)).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Every shard is asked for a page after the cursor and the pages are merged, so each page reads up to
+     * size + 1 users per shard.
+     */
+    public UserPage getUsersPageByAgeRange(int from, int to, String cursor, int size) {
+        if (from > to){
+            throw new BadRequestException("“From” must be less than “To”!");
+        }
+
+        if (size < 1 || size > MAX_PAGE_SIZE){
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE + "!");
+        }
+
+        BirthdayRange range = BirthdayRange.of(from, to, LocalDate.now());
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        List<User> users;
+        if (cursor == null || cursor.isBlank()){
+            users = userShards.gather(shard -> userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(range.minBirthday(),
+                    range.maxBirthday(), limit), UserCursor.USER_ORDER, size + 1);
+        }else {
+            UserCursor after = UserCursor.decode(cursor);
+            users = userShards.gather(shard -> userRepository.findPageAfter(range.minBirthday(), range.maxBirthday(),
+                    after.birthday(), after.id(), limit), UserCursor.USER_ORDER, size + 1);
+        }
+
+        if (users.size() <= size){
+            return UserPage.builder().users(users).build();
+        }
+
+        List<User> page = users.subList(0, size);
+        return UserPage.builder()
+                .users(page)
+                .nextCursor(UserCursor.of(page.get(size - 1)).encode())
+                .build();
+    }
+
+    /**
+     * Users whose first name, last name, email or city match every word of the text, best matches first,
+     * within the age range. Until the search index is loaded, or when it is disabled, the database is searched
+     * instead for fields starting with the whole text, unranked.
+     */
+    public List<User> searchUsers(String text, int from, int to, int limit) {
+        if (text == null || text.isBlank()){
+            throw new BadRequestException("Search text cannot be empty!");
+        }
+
+        if (from > to){
+            throw new BadRequestException("“From” must be less than “To”!");
+        }
+
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS){
+            throw new BadRequestException("Limit must be between 1 and " + MAX_SEARCH_RESULTS + "!");
+        }
+
+        BirthdayRange range = BirthdayRange.of(from, to, LocalDate.now());
+        if (!userSearchIndex.isReady()){
+            List<User> found = new ArrayList<>();
+            userShards.scatter(shard -> userRepository.searchByPrefix(range.minBirthday(), range.maxBirthday(), likePrefix(text),
+                    PageRequest.of(0, limit))).forEach(found::addAll);
+            return found.size() <= limit ? found : found.subList(0, limit);
+        }
+
+        List<Long> ids = userSearchIndex.search(text, range.minBirthday(), range.maxBirthday(), limit);
+        Map<Long, User> users = userShards.gatherByIds(ids, userRepository::findAllById).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream().map(users::get).filter(Objects::nonNull).toList();
+    }
+
+    private static String likePrefix(String text) {
+        return text.strip().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    /**
+     * Creates one chunk of a bulk import. Rows go through the same validation as {@link #createUser}.
+     * Emails already taken are looked up with one query for the whole chunk, so a single conflicting row
+     * does not make the chunk's saveAll fail, and valid rows are inserted with one saveAll per shard.
+     *
+     * @param firstRow index of the first request of the chunk within the whole import, used in the reported errors
+     */
+    public UserImportResult importUsers(List<UserCreateRequest> requests, long firstRow) {
+        return importUsers(requests, firstRow, new HashMap<>());
+    }
+
+    /**
+     * @param createdIds filled with the id of the user created from each row that did not fail
+     */
+    UserImportResult importUsers(List<UserCreateRequest> requests, long firstRow, Map<Long, Long> createdIds) {
+        Set<String> emails = requests.stream()
+                .filter(Objects::nonNull)
+                .map(UserCreateRequest::email)
+                .filter(Objects::nonNull)
+                .map(UserService::normalizeEmail)
+                .collect(Collectors.toSet());
+        Set<String> takenEmails = new HashSet<>();
+        if (!emails.isEmpty()){
+            takenEmails.addAll(userDirectory.isEnabled() ? userDirectory.findTakenEmails(emails) : userRepository.findExistingEmails(emails));
+        }
+
+        List<User> users = new ArrayList<>();
+        List<Long> rows = new ArrayList<>();
+        List<UserImportError> errors = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            UserCreateRequest request = requests.get(i);
+            if (request == null){
+                errors.add(new UserImportError(firstRow + i, "User cannot be null"));
+                continue;
+            }
+
+            List<String> fieldErrors = userValidator.validate(request.email(), request.firstName(), request.lastName(), request.birthday());
+            if (!fieldErrors.isEmpty()){
+                errors.add(new UserImportError(firstRow + i, String.join(" ", fieldErrors)));
+                continue;
+            }
+
+            User user = fillUser(new User(),
+                    request.email(), request.firstName(), request.lastName(), request.birthday(), request.country(),
+                    request.city(), request.street(), request.houseNumber(), request.apartmentNumber(), request.phone());
+            if (!takenEmails.add(user.getEmail())){
+                errors.add(new UserImportError(firstRow + i, "Invalid email!"));
+                continue;
+            }
+
+            users.add(user);
+            rows.add(firstRow + i);
+        }
+
+        int created = saveChunk(users, rows, errors, createdIds);
+
+        errors.sort(Comparator.comparingLong(UserImportError::row));
+        return new UserImportResult(created, errors);
+    }
+
+    /**
+     * Splits the chunk by shard once the users have their ids; each shard's part is saved on its own.
+     * A part that fails does not fail the chunk, as the parts before it are already committed:
+     * its rows are reported as not created instead.
+     */
+    private int saveChunk(List<User> users, List<Long> rows, List<UserImportError> errors, Map<Long, Long> createdIds) {
+        users.forEach(userDirectory::assignId);
+        Map<Integer, List<Integer>> indexesByShard = IntStream.range(0, users.size()).boxed()
+                .collect(Collectors.groupingBy(i -> userShards.shardOf(users.get(i).getId()), TreeMap::new, Collectors.toList()));
+
+        int created = 0;
+        for (Map.Entry<Integer, List<Integer>> shard : indexesByShard.entrySet()) {
+            List<User> shardUsers = shard.getValue().stream().map(users::get).toList();
+            List<Long> shardRows = shard.getValue().stream().map(rows::get).toList();
+            List<UserImportError> shardErrors = new ArrayList<>();
+            try {
+                created += userShards.onShard(shard.getKey(), () -> saveShardChunk(shardUsers, shardRows, shardErrors, createdIds));
+                errors.addAll(shardErrors);
+            } catch (RuntimeException e) {
+                log.error("Could not create {} users on shard {}", shardUsers.size(), shard.getKey(), e);
+                shardRows.forEach(row -> errors.add(new UserImportError(row, "User could not be created")));
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Each insert commits together with its change events, like {@link #createUser}.
+     */
+    private int saveShardChunk(List<User> users, List<Long> rows, List<UserImportError> errors, Map<Long, Long> createdIds) {
+        try {
+            List<User> saved = saveWithChanges(users);
+            for (int i = 0; i < saved.size(); i++) {
+                createdIds.put(rows.get(i), saved.get(i).getId());
+            }
+            saved.forEach(this::onUserCreated);
+            return users.size();
+        } catch (DataIntegrityViolationException e) {
+            // another writer took one of the emails after the check; fall back to row by row to find it
+            int created = 0;
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                // a directory id is kept: the rollback released its email, not the id
+                if (!userDirectory.isEnabled()){
+                    user.setId(null);
+                }
+                // the failed flush may have inserted it before rolling back
+                user.setPersisted(false);
+                try {
+                    User saved = saveWithChanges(List.of(user)).get(0);
+                    createdIds.put(rows.get(i), saved.getId());
+                    onUserCreated(saved);
+                    created++;
+                } catch (DataIntegrityViolationException rowException) {
+                    errors.add(new UserImportError(rows.get(i), violationMessage(rowException)));
+                }
+            }
+            return created;
+        }
+    }
+
+    private List<User> saveWithChanges(List<User> users) {
+        return transactionTemplate.execute(status -> {
+            userDirectory.reserveAll(users);
+            List<User> saved = userRepository.saveAllAndFlush(users);
+            userChangeOutbox.created(saved);
+            return saved;
+        });
+    }
+
+    /**
+     * With sharding uk_users_email only covers one shard; the email is reserved in the {@link UserDirectory} instead.
+     */
+    private void reserveEmail(String email, Long userId) {
+        try {
+            userDirectory.reserve(email, userId);
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException(violationMessage(e));
+        }
+    }
+
+    private int updateFields(Long userId, Map<String, Object> fields) {
+        if (fields.isEmpty()){
+            return userRepository.existsById(userId) ? 1 : 0;
+        }
+
+        try {
+            return userRepository.updateFields(userId, fields);
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException(violationMessage(e));
+        }
+    }
+
+    /**
+     * Without sharding, email uniqueness is enforced by the uk_users_email index, so the violation is only seen
+     * when the row is written. Flushes inside the try so it surfaces here rather than at commit.
+     */
+    private User flushUser(User user) {
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException(violationMessage(e));
+        }
+    }
+
+    /**
+     * Only a taken email is reported as such: a violation of uk_users_email, or of the directory's key on the email.
+     * Any other constraint, like a column value too long, is a plain bad request. Shared with {@link ReactiveUserService}.
+     */
+    static String violationMessage(DataIntegrityViolationException e) {
+        if (e instanceof DuplicateKeyException){
+            return "Invalid email!";
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(User.EMAIL_CONSTRAINT)){
+                return "Invalid email!";
+            }
+        }
+        return "Invalid user!";
+    }
+
+    /**
+     * The caches and the indexes are only changed once the write commits: a reader that queried before
+     * the commit could otherwise cache rows without the write, after the write was applied to the cache.
+     */
+    private void onUserCreated(User user) {
+        AfterCommit.run(() -> {
+            ageRangeCache.update(user);
+            birthdayIndex.add(user);
+            userSearchIndex.update(user);
+        });
+        AfterCommit.run(userTableVersion::bump);
+    }
+
+    static String normalizeEmail(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private User getValidateUser(UserCreateRequest request){
+        User user = new User();
+
+        return validateUser(user,
+                request.email(), request.firstName(), request.lastName(), request.birthday(), request.country(),
+                request.city(), request.street(), request.houseNumber(), request.apartmentNumber(), request.phone());
+    }
+
+    private User validateUser(User user,
+                              String email, String firstName, String lastName, LocalDate birthday, String country,
+                              String city, String street, Long houseNumber, Long apartmentNumber, String phone) {
+
+        List<String> errors = userValidator.validate(email, firstName, lastName, birthday);
+        if (!errors.isEmpty()){
+            throw new BadRequestException(String.join(" ", errors));
+        }
+
+        return fillUser(user, email, firstName, lastName, birthday, country, city, street, houseNumber, apartmentNumber, phone);
+    }
+
+    /**
+     * Copies the non-null fields of the request onto the user; shared with {@link ReactiveUserService}.
+     * The address is replaced by a new instance, so a copy made with toBuilder never shares it with the original.
+     */
+    static User applyPatch(User user, UserUpdateRequest request) {
+        if (request.email() != null){
+            user.setEmail(normalizeEmail(request.email()));
+        }
+        if (request.firstName() != null){
+            user.setFirstName(request.firstName());
+        }
+        if (request.lastName() != null){
+            user.setLastName(request.lastName());
+        }
+        if (request.birthday() != null){
+            user.setBirthday(request.birthday());
+        }
+        if (request.phone() != null){
+            user.setPhone(request.phone());
+        }
+
+        if (request.country() != null || request.city() != null || request.street() != null
+                || request.houseNumber() != null || request.apartmentNumber() != null){
+            Address.AddressBuilder address = user.getAddress() == null ? Address.builder() : user.getAddress().toBuilder();
+            if (request.country() != null){
+                address.country(request.country());
+            }
+            if (request.city() != null){
+                address.city(request.city());
+            }
+            if (request.street() != null){
+                address.street(request.street());
+            }
+            if (request.houseNumber() != null){
+                address.houseNumber(request.houseNumber());
+            }
+            if (request.apartmentNumber() != null){
+                address.apartmentNumber(request.apartmentNumber());
+            }
+            user.setAddress(address.build());
+        }
+
+        return user;
+    }
+
+    /**
+     * The same non-null fields as {@link #applyPatch}, keyed by attribute path for {@link UserRepository#updateFields}.
+     */
+    private static Map<String, Object> patchedFields(UserUpdateRequest request) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        putIfPresent(fields, "email", request.email() == null ? null : normalizeEmail(request.email()));
+        putIfPresent(fields, "firstName", request.firstName());
+        putIfPresent(fields, "lastName", request.lastName());
+        putIfPresent(fields, "phone", request.phone());
+        putIfPresent(fields, "address.country", request.country());
+        putIfPresent(fields, "address.city", request.city());
+        putIfPresent(fields, "address.street", request.street());
+        putIfPresent(fields, "address.houseNumber", request.houseNumber());
+        putIfPresent(fields, "address.apartmentNumber", request.apartmentNumber());
+        return fields;
+    }
+
+    private static void putIfPresent(Map<String, Object> fields, String path, Object value) {
+        if (value != null){
+            fields.put(path, value);
+        }
+    }
+
+    /**
+     * Shared with {@link ReactiveUserService}, so both stacks store the same normalized fields.
+     */
+    static User fillUser(User user,
+                         String email, String firstName, String lastName, LocalDate birthday, String country,
+                         String city, String street, Long houseNumber, Long apartmentNumber, String phone) {
+
+        user.setEmail(normalizeEmail(email));
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setBirthday(birthday);
+
+        Address address = Address.builder()
+                .country(country)
+                .city(city)
+                .street(street)
+                .houseNumber(houseNumber)
+                .apartmentNumber(apartmentNumber)
+                .build();
+        user.setAddress(address);
+
+        user.setPhone(phone);
+        return user;
+    }
+}
\ No newline at end of file
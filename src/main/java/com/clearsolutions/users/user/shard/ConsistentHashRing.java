@@ -0,0 +1,43 @@
+package com.clearsolutions.users.user.shard;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps user ids to shards with consistent hashing. Every shard owns virtualNodes points on a 64-bit ring;
+ * an id belongs to the shard of the first point at or after its hash, wrapping around.
+ * Adding a shard only moves the ids between its new points and their predecessors, about 1/(n+1) of them.
+ */
+public class ConsistentHashRing {
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    public ConsistentHashRing(int shards, int virtualNodes) {
+        if (shards < 1 || virtualNodes < 1){
+            throw new IllegalArgumentException("A hash ring needs at least one shard and one virtual node per shard");
+        }
+
+        for (int shard = 0; shard < shards; shard++) {
+            // seeded by the shard's hash, so the points never hash the same inputs as small user ids
+            long seed = hash(shard);
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.putIfAbsent(hash(seed + node), shard);
+            }
+        }
+    }
+
+    public int shardOf(long id) {
+        Map.Entry<Long, Integer> point = ring.ceilingEntry(hash(id));
+        return point == null ? ring.firstEntry().getValue() : point.getValue();
+    }
+
+    /**
+     * SplitMix64 finalizer: consecutive ids and node numbers spread evenly over the ring.
+     */
+    static long hash(long value) {
+        long hash = value + 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,331 @@
+package com.clearsolutions.users.user.shard;
+
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.entity.UserChange;
+import com.clearsolutions.users.user.model.properties.UserShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Global lookup table of the sharded users: which user holds an email, so emails stay unique across shards
+ * and a user is found by email without asking every shard. It also hands out user ids, so the shard of a new user
+ * is known before it is inserted, and the ids of their change events, which a shard's own sequence would hand out
+ * again on another shard. Its lock keeps a single change relay numbering the events of every shard. Lives in its own database at sharding.users.directory-url.
+ * <p>
+ * A user's email is reserved here before its row is written and the reservation follows the shard transaction.
+ * Reserved and released emails are pending until that transaction completes: a reservation is confirmed when it commits
+ * and removed when it rolls back, a release is removed when it commits and confirmed again when it rolls back.
+ * A pending email is taken. Rows that stay pending because the process stopped or the directory was down in between
+ * are settled by the {@link UserDirectoryReconciler}. Without sharding every method is a no-op and uk_users_email
+ * keeps emails unique.
+ */
+@Slf4j
+@Component
+public class UserDirectory implements DisposableBean {
+
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private final HikariDataSource pool;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IdBlocks userIds;
+    private final IdBlocks changeIds;
+
+    public UserDirectory(UserShardingProperties userShardingProperties, DataSourceProperties dataSourceProperties) {
+        if (!Boolean.TRUE.equals(userShardingProperties.getEnabled())){
+            this.pool = null;
+            this.jdbcTemplate = null;
+            this.namedJdbcTemplate = null;
+            this.transactionTemplate = null;
+            this.userIds = null;
+            this.changeIds = null;
+            return;
+        }
+
+        this.pool = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(userShardingProperties.getDirectoryUrl())
+                .build();
+        this.pool.setPoolName("user-directory");
+        this.jdbcTemplate = new JdbcTemplate(pool);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(pool));
+        this.userIds = new IdBlocks("user_ids");
+        this.changeIds = new IdBlocks("user_change_ids");
+
+        jdbcTemplate.execute("create table if not exists user_emails (email varchar(255) primary key, user_id bigint not null, "
+                + "pending boolean not null, pending_since timestamp)");
+        jdbcTemplate.execute("create index if not exists idx_user_emails_user_id on user_emails (user_id)");
+        jdbcTemplate.execute("create index if not exists idx_user_emails_pending on user_emails (pending, pending_since)");
+        jdbcTemplate.execute("create sequence if not exists user_ids start with 1 increment by " + ID_BLOCK_SIZE);
+        jdbcTemplate.execute("create sequence if not exists user_change_ids start with 1 increment by " + ID_BLOCK_SIZE);
+        jdbcTemplate.execute("create table if not exists user_change_relay_lock (id int primary key)");
+        try {
+            jdbcTemplate.update("insert into user_change_relay_lock (id) values (1)");
+        } catch (DuplicateKeyException e) {
+            // created by another instance
+        }
+    }
+
+    public boolean isEnabled() {
+        return pool != null;
+    }
+
+    /**
+     * Gives a new user the next id, which decides its shard.
+     */
+    public void assignId(User user) {
+        if (isEnabled() && user.getId() == null){
+            user.setId(userIds.next());
+        }
+    }
+
+    /**
+     * Gives a change event the next id, unique across the shards.
+     */
+    public void assignId(UserChange change) {
+        if (isEnabled() && change.getId() == null){
+            change.setId(changeIds.next());
+        }
+    }
+
+    /**
+     * Runs the relay of change events while holding the directory's relay lock, so one relay at a time numbers them
+     * across all shards and instances. The lock is a row lock on a plain connection, kept out of the shard transactions
+     * the relay runs. Without sharding the relay just runs.
+     *
+     * @throws PessimisticLockingFailureException when another relay holds the lock past the lock timeout
+     */
+    public <T> T withChangeRelayLock(Supplier<T> relay) {
+        if (!isEnabled()){
+            return relay.get();
+        }
+
+        return jdbcTemplate.execute((ConnectionCallback<T>) connection -> {
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeQuery("select id from user_change_relay_lock where id = 1 for update").close();
+                }
+                T result = relay.get();
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        });
+    }
+
+    /**
+     * Reserves the email for the user, pending until the current transaction completes;
+     * nothing to do when the user already holds it.
+     *
+     * @throws DuplicateKeyException when another user holds the email
+     */
+    public void reserve(String email, Long userId) {
+        if (!isEnabled()){
+            return;
+        }
+
+        try {
+            jdbcTemplate.update("insert into user_emails (email, user_id, pending, pending_since) values (?, ?, true, ?)",
+                    email, userId, Timestamp.from(Instant.now()));
+        } catch (DuplicateKeyException e) {
+            if (userId.equals(findUserId(email).orElse(null))){
+                return;
+            }
+            throw e;
+        }
+        List<Map.Entry<String, Long>> reserved = List.of(Map.entry(email, userId));
+        afterCompletion(() -> confirm(reserved), () -> remove(reserved));
+    }
+
+    /**
+     * Reserves the emails of new users with one batch, all or none.
+     *
+     * @throws DuplicateKeyException when any of the emails is taken
+     */
+    public void reserveAll(Collection<User> users) {
+        if (!isEnabled() || users.isEmpty()){
+            return;
+        }
+
+        List<Map.Entry<String, Long>> reserved = users.stream().map(user -> Map.entry(user.getEmail(), user.getId())).toList();
+        Timestamp now = Timestamp.from(Instant.now());
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                "insert into user_emails (email, user_id, pending, pending_since) values (?, ?, true, ?)", reserved, reserved.size(),
+                (statement, entry) -> {
+                    statement.setString(1, entry.getKey());
+                    statement.setLong(2, entry.getValue());
+                    statement.setTimestamp(3, now);
+                }));
+        afterCompletion(() -> confirm(reserved), () -> remove(reserved));
+    }
+
+    /**
+     * Releases the emails of the user but the given one, once the current transaction commits.
+     */
+    public void releaseOthers(Long userId, String email) {
+        if (isEnabled()){
+            jdbcTemplate.update("update user_emails set pending = true, pending_since = ? where user_id = ? and email <> ?",
+                    Timestamp.from(Instant.now()), userId, email);
+            afterCompletion(
+                    () -> jdbcTemplate.update("delete from user_emails where user_id = ? and email <> ? and pending", userId, email),
+                    () -> jdbcTemplate.update("update user_emails set pending = false, pending_since = null "
+                            + "where user_id = ? and email <> ? and pending", userId, email));
+        }
+    }
+
+    /**
+     * Releases every email of a deleted user, once the current transaction commits.
+     */
+    public void release(Long userId) {
+        if (isEnabled()){
+            jdbcTemplate.update("update user_emails set pending = true, pending_since = ? where user_id = ?",
+                    Timestamp.from(Instant.now()), userId);
+            afterCompletion(
+                    () -> jdbcTemplate.update("delete from user_emails where user_id = ? and pending", userId),
+                    () -> jdbcTemplate.update("update user_emails set pending = false, pending_since = null where user_id = ? and pending", userId));
+        }
+    }
+
+    /**
+     * Emails pending since before the given time, with the users that reserved or released them.
+     */
+    public List<Map.Entry<String, Long>> findPending(Instant pendingBefore, int limit) {
+        if (!isEnabled()){
+            return List.of();
+        }
+        return jdbcTemplate.query("select email, user_id from user_emails where pending and pending_since < ? order by pending_since limit ?",
+                (row, rowNum) -> Map.entry(row.getString(1), row.getLong(2)), Timestamp.from(pendingBefore), limit);
+    }
+
+    /**
+     * Keeps the pending emails for their users.
+     */
+    public void confirm(List<Map.Entry<String, Long>> emails) {
+        batchUpdate("update user_emails set pending = false, pending_since = null where email = ? and user_id = ? and pending", emails);
+    }
+
+    /**
+     * Frees the pending emails.
+     */
+    public void remove(List<Map.Entry<String, Long>> emails) {
+        batchUpdate("delete from user_emails where email = ? and user_id = ? and pending", emails);
+    }
+
+    public Optional<Long> findUserId(String email) {
+        if (!isEnabled()){
+            return Optional.empty();
+        }
+        return jdbcTemplate.queryForList("select user_id from user_emails where email = ?", Long.class, email).stream().findFirst();
+    }
+
+    public Set<String> findTakenEmails(Collection<String> emails) {
+        if (!isEnabled() || emails.isEmpty()){
+            return new HashSet<>();
+        }
+        return new HashSet<>(namedJdbcTemplate.queryForList("select email from user_emails where email in (:emails)",
+                Map.of("emails", emails), String.class));
+    }
+
+    @Override
+    public void destroy() {
+        if (pool != null){
+            pool.close();
+        }
+    }
+
+    /**
+     * Ids come from a directory sequence a block at a time, so most of them cost no round trip.
+     */
+    private final class IdBlocks {
+
+        private final String sequence;
+
+        private long nextId;
+        private long blockEnd;
+
+        private IdBlocks(String sequence) {
+            this.sequence = sequence;
+        }
+
+        private synchronized long next() {
+            if (nextId == blockEnd){
+                Long first = jdbcTemplate.queryForObject("select next value for " + sequence, Long.class);
+                nextId = first;
+                blockEnd = first + ID_BLOCK_SIZE;
+            }
+            return nextId++;
+        }
+    }
+
+    private void batchUpdate(String sql, List<Map.Entry<String, Long>> emails) {
+        if (!isEnabled() || emails.isEmpty()){
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, emails, emails.size(), (statement, entry) -> {
+            statement.setString(1, entry.getKey());
+            statement.setLong(2, entry.getValue());
+        });
+    }
+
+    /**
+     * Settles the pending rows once the current transaction completes, or right away outside a transaction.
+     * A failure only logs: the shard transaction is already over and the rows stay pending for the reconciler,
+     * as they do when the outcome is unknown.
+     */
+    private static void afterCompletion(Runnable committed, Runnable rolledBack) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()){
+            settle(committed);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED){
+                    settle(committed);
+                }else if (status == STATUS_ROLLED_BACK){
+                    settle(rolledBack);
+                }
+            }
+        });
+    }
+
+    private static void settle(Runnable action) {
+        try {
+            action.run();
+        } catch (DataAccessException e) {
+            log.warn("Could not settle pending user emails, left to the reconciler", e);
+        }
+    }
+}
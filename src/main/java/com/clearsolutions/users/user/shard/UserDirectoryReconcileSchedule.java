@@ -0,0 +1,23 @@
+package com.clearsolutions.users.user.shard;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the {@link UserDirectoryReconciler} every reconcile-delay milliseconds while sharding is enabled.
+ * Off when sharding.users.reconcile-enabled is false, as in the tests.
+ */
+@Component
+@AllArgsConstructor
+@ConditionalOnProperty(prefix = "sharding.users", name = {"enabled", "reconcile-enabled"}, havingValue = "true")
+public class UserDirectoryReconcileSchedule {
+
+    private UserDirectoryReconciler userDirectoryReconciler;
+
+    @Scheduled(fixedDelayString = "${sharding.users.reconcile-delay}")
+    public void reconcile() {
+        userDirectoryReconciler.reconcile();
+    }
+}
@@ -0,0 +1,71 @@
+package com.clearsolutions.users.user.shard;
+
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.properties.UserShardingProperties;
+import com.clearsolutions.users.user.repository.UserRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Settles the {@link UserDirectory} emails left pending for longer than sharding.users.pending-timeout, from the users'
+ * shards: an email is kept when its user has it and freed otherwise. The timeout has to outlast the shard transactions,
+ * as one still running past it would have its reservation freed under it.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class UserDirectoryReconciler {
+
+    private static final int BATCH_SIZE = 500;
+
+    private UserDirectory userDirectory;
+    private UserShards userShards;
+    private UserRepository userRepository;
+    private UserShardingProperties userShardingProperties;
+
+    /**
+     * Run by {@link UserDirectoryReconcileSchedule}.
+     *
+     * @return the number of emails settled
+     */
+    public int reconcile() {
+        Instant pendingBefore = Instant.now().minus(userShardingProperties.getPendingTimeout());
+        int settled = 0;
+        List<Map.Entry<String, Long>> pending;
+        do {
+            pending = userDirectory.findPending(pendingBefore, BATCH_SIZE);
+            settled += settle(pending);
+        } while (pending.size() == BATCH_SIZE);
+
+        if (settled > 0){
+            log.info("Settled {} pending user emails", settled);
+        }
+        return settled;
+    }
+
+    private int settle(List<Map.Entry<String, Long>> pending) {
+        if (pending.isEmpty()){
+            return 0;
+        }
+
+        List<Long> userIds = pending.stream().map(Map.Entry::getValue).distinct().toList();
+        Map<Long, String> emails = userShards.gatherByIds(userIds, userRepository::findAllById).stream()
+                .collect(Collectors.toMap(User::getId, User::getEmail));
+
+        List<Map.Entry<String, Long>> held = new ArrayList<>();
+        List<Map.Entry<String, Long>> free = new ArrayList<>();
+        for (Map.Entry<String, Long> email : pending) {
+            (email.getKey().equals(emails.get(email.getValue())) ? held : free).add(email);
+        }
+        userDirectory.confirm(held);
+        userDirectory.remove(free);
+        return pending.size();
+    }
+}
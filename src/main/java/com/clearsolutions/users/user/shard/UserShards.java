@@ -0,0 +1,294 @@
+package com.clearsolutions.users.user.shard;
+
+import com.clearsolutions.users.user.model.properties.UserShardingProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Places users on the sharding.users databases by consistent hash of their id, see {@link ConsistentHashRing}.
+ * Work is pinned to a shard by binding it to the thread with {@link #onShard}; the ShardRoutingDataSource
+ * hands out connections of the bound shard, and of shard 0 when nothing is bound. The connection is taken
+ * on a transaction's first statement, so the shard has to be bound before it and a transaction never spans shards.
+ * <p>
+ * Range reads are scattered to every shard in parallel and their sorted results merged. Without sharding
+ * there is a single shard and all work runs inline on the caller's thread.
+ */
+@Component
+public class UserShards implements DisposableBean {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int count;
+    private final ConsistentHashRing ring;
+    private final ExecutorService pool;
+
+    public UserShards(UserShardingProperties userShardingProperties) {
+        if (Boolean.TRUE.equals(userShardingProperties.getEnabled())){
+            this.count = userShardingProperties.getUrls().size();
+            this.ring = new ConsistentHashRing(count, userShardingProperties.getVirtualNodes());
+            AtomicInteger threads = new AtomicInteger();
+            // not bounded here: concurrent scatters are bounded by the request bulkhead and the shard pools
+            this.pool = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "user-shards-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }else {
+            this.count = 1;
+            this.ring = null;
+            this.pool = null;
+        }
+    }
+
+    /**
+     * @return the shard bound to the current thread, or null outside of {@link #onShard}
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int shardOf(Long userId) {
+        return ring == null ? 0 : ring.shardOf(userId);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null){
+                CURRENT.remove();
+            }else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public <T> T onShardOf(Long userId, Supplier<T> work) {
+        return onShard(shardOf(userId), work);
+    }
+
+    public void runOnShardOf(Long userId, Runnable work) {
+        onShard(shardOf(userId), () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the work on every shard, in parallel on a thread per shard, and returns the results in shard order.
+     * The work must not need the caller's transaction: each shard runs in its own.
+     */
+    public <T> List<T> scatter(IntFunction<T> work) {
+        if (pool == null){
+            return Collections.singletonList(work.apply(0));
+        }
+
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            futures.add(pool.submit(() -> onShard(target, () -> work.apply(target))));
+        }
+
+        List<T> results = new ArrayList<>(count);
+        try {
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    /**
+     * Scatters a read whose per-shard results are sorted by order, and k-way merges them into the first limit.
+     */
+    public <T> List<T> gather(IntFunction<List<T>> work, Comparator<? super T> order, int limit) {
+        return merge(scatter(work), order, limit);
+    }
+
+    /**
+     * Runs the work on every shard holding some of the ids, with that shard's ids only, and concatenates the results.
+     */
+    public <T> List<T> gatherByIds(Collection<Long> userIds, Function<List<Long>, List<T>> work) {
+        if (pool == null){
+            return work.apply(new ArrayList<>(userIds));
+        }
+
+        List<List<Long>> idsByShard = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            idsByShard.add(new ArrayList<>());
+        }
+        for (Long userId : userIds) {
+            idsByShard.get(shardOf(userId)).add(userId);
+        }
+
+        List<T> results = new ArrayList<>();
+        scatter(shard -> idsByShard.get(shard).isEmpty() ? List.<T>of() : work.apply(idsByShard.get(shard)))
+                .forEach(results::addAll);
+        return results;
+    }
+
+    /**
+     * Merges the shards' results in order, reading each shard a page at a time as the iterator advances,
+     * so only a page per shard is held. nextPage gets the last element of the previous page, null for the first;
+     * an empty page ends the shard. Pages are read like {@link #scatter}, never in the caller's transaction.
+     */
+    public <T> Iterator<T> mergePages(Function<T, List<T>> nextPage, Comparator<? super T> order) {
+        return new PageMergeIterator<>(this, nextPage, order);
+    }
+
+    /**
+     * Runs the work bound to one shard on a shard thread, inline without sharding.
+     */
+    private <T> T call(int shard, Supplier<T> work) {
+        if (pool == null){
+            return work.get();
+        }
+        return await(pool.submit(() -> onShard(shard, work)));
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException){
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error){
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards", e);
+        }
+    }
+
+    /**
+     * k-way merge of sorted lists into the first limit elements, through a heap of each list's next element.
+     */
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, int limit) {
+        if (sorted.size() == 1){
+            List<T> only = sorted.get(0);
+            return only.size() <= limit ? only : only.subList(0, limit);
+        }
+
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(sorted.size(), (a, b) -> order.compare(a.value, b.value));
+        int total = 0;
+        for (List<T> list : sorted) {
+            total += list.size();
+            Iterator<T> iterator = list.iterator();
+            if (iterator.hasNext()){
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+
+        List<T> merged = new ArrayList<>(Math.min(total, limit));
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            merged.add(head.value);
+            if (head.rest.hasNext()){
+                heads.add(new Head<>(head.rest.next(), head.rest));
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void destroy() {
+        if (pool != null){
+            pool.shutdownNow();
+        }
+    }
+
+    private record Head<T>(T value, Iterator<T> rest) {
+    }
+
+    private static final class PageMergeIterator<T> implements Iterator<T> {
+
+        private final UserShards userShards;
+        private final Function<T, List<T>> nextPage;
+        private final PriorityQueue<ShardHead<T>> heads;
+
+        private PageMergeIterator(UserShards userShards, Function<T, List<T>> nextPage, Comparator<? super T> order) {
+            this.userShards = userShards;
+            this.nextPage = nextPage;
+            this.heads = new PriorityQueue<>(userShards.count(), (a, b) -> order.compare(a.page.get(a.next), b.page.get(b.next)));
+            List<List<T>> firstPages = userShards.scatter(shard -> nextPage.apply(null));
+            for (int shard = 0; shard < firstPages.size(); shard++) {
+                add(new ShardHead<>(shard), firstPages.get(shard));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            ShardHead<T> head = heads.poll();
+            if (head == null){
+                throw new NoSuchElementException();
+            }
+            T value = head.page.get(head.next++);
+            if (head.next < head.page.size()){
+                heads.add(head);
+            }else {
+                advance(head, value);
+            }
+            return value;
+        }
+
+        private void advance(ShardHead<T> head, T last) {
+            add(head, userShards.call(head.shard, () -> nextPage.apply(last)));
+        }
+
+        private void add(ShardHead<T> head, List<T> page) {
+            head.page = page;
+            head.next = 0;
+            if (!page.isEmpty()){
+                heads.add(head);
+            }
+        }
+    }
+
+    private static final class ShardHead<T> {
+
+        private final int shard;
+        private List<T> page;
+        private int next;
+
+        private ShardHead(int shard) {
+            this.shard = shard;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.clearsolutions.users.user.validator;
+
+import com.clearsolutions.users.user.model.properties.UserProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Field rules shared by every user write. All failing fields are reported together
+ * and nothing is thrown, so callers validating many rows don't pay for an exception per row.
+ */
+@Component
+public class UserValidator {
+
+    private final UserProperties userProperties;
+
+    private volatile AgeCutoff ageCutoff;
+
+    public UserValidator(UserProperties userProperties) {
+        this.userProperties = userProperties;
+    }
+
+    /**
+     * @return error messages in field order, or an empty list when the user is valid
+     */
+    public List<String> validate(String email, String firstName, String lastName, LocalDate birthday) {
+        return validate(email, firstName, lastName, birthday, false);
+    }
+
+    /**
+     * Same rules for a partial update: a null field is not being changed and is skipped.
+     *
+     * @return error messages in field order, or an empty list when the supplied fields are valid
+     */
+    public List<String> validatePatch(String email, String firstName, String lastName, LocalDate birthday) {
+        return validate(email, firstName, lastName, birthday, true);
+    }
+
+    private List<String> validate(String email, String firstName, String lastName, LocalDate birthday, boolean partial) {
+        List<String> errors = null;
+
+        if ((email != null || !partial) && (email == null || email.isBlank() || !userProperties.getUserEmailPattern().matcher(email).matches())){
+            errors = addError(errors, "Invalid email!");
+        }
+
+        if ((firstName != null || !partial) && (firstName == null || firstName.isEmpty())){
+            errors = addError(errors, "First name cannot be null!");
+        }
+
+        if ((lastName != null || !partial) && (lastName == null || lastName.isEmpty())){
+            errors = addError(errors, "Last name cannot be null!");
+        }
+
+        if (birthday == null){
+            if (!partial){
+                errors = addError(errors, "Invalid birthday!");
+            }
+        }else if (birthday.isAfter(maxBirthday())){
+            errors = addError(errors, "User must be " + userProperties.getUserMinAge() + "!");
+        }
+
+        return errors == null ? List.of() : errors;
+    }
+
+    /**
+     * Latest birthday allowed today. Recomputed on the first call after local midnight.
+     */
+    public LocalDate maxBirthday() {
+        AgeCutoff cutoff = ageCutoff;
+        if (cutoff == null || System.currentTimeMillis() >= cutoff.validUntilMillis()){
+            cutoff = AgeCutoff.today(userProperties.getUserMinAge());
+            ageCutoff = cutoff;
+        }
+        return cutoff.maxBirthday();
+    }
+
+    private static List<String> addError(List<String> errors, String error) {
+        List<String> result = errors == null ? new ArrayList<>(4) : errors;
+        result.add(error);
+        return result;
+    }
+
+    private record AgeCutoff(LocalDate maxBirthday, long validUntilMillis) {
+
+        static AgeCutoff today(int minAge) {
+            ZoneId zone = ZoneId.systemDefault();
+            LocalDate today = LocalDate.now(zone);
+            return new AgeCutoff(today.minusYears(minAge),
+                    today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.cache.AgeRangeCache;
+import com.clearsolutions.users.user.index.BirthdayIndex;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.properties.AgeRangeCacheProperties;
+import com.clearsolutions.users.user.model.properties.UserShardingProperties;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.shard.UserShards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AgeRangeCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BirthdayIndex birthdayIndex;
+
+    private AgeRangeCache ageRangeCache;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    public void setUp() {
+        AgeRangeCacheProperties ageRangeCacheProperties = new AgeRangeCacheProperties();
+        ageRangeCacheProperties.setMaximumRanges(16L);
+        ageRangeCacheProperties.setMaximumUsersPerRange(100);
+
+        ageRangeCache = new AgeRangeCache(userRepository, new UserShards(new UserShardingProperties()), birthdayIndex,
+                ageRangeCacheProperties);
+    }
+
+    @Test
+    public void testFind_QueriesBirthdayBoundsOnce() {
+        LocalDate minBirthday = today.minusYears(31).plusDays(1);
+        LocalDate maxBirthday = today.minusYears(19);
+
+        when(userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(minBirthday, maxBirthday))
+                .thenReturn(users(user(2L, 30), user(3L, 22), user(6L, 19)));
+
+        assertEquals(List.of(2L, 3L, 6L), ids(ageRangeCache.find(19, 30)));
+        assertEquals(List.of(2L, 3L, 6L), ids(ageRangeCache.find(19, 30)));
+
+        verify(userRepository, times(1)).findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any());
+    }
+
+    @Test
+    public void testFind_LoadsFromBirthdayIndexWhenReady() {
+        when(birthdayIndex.isReady()).thenReturn(true);
+        when(birthdayIndex.find(any())).thenReturn(users(user(2L, 30), user(3L, 22)));
+
+        assertEquals(List.of(2L, 3L), ids(ageRangeCache.find(19, 30)));
+        assertEquals(List.of(2L, 3L), ids(ageRangeCache.find(19, 30)));
+
+        verify(birthdayIndex, times(1)).find(any());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testUpdate_PatchesCachedRange() {
+        when(userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any()))
+                .thenReturn(users(user(2L, 30), user(3L, 22)));
+        ageRangeCache.find(19, 30);
+
+        ageRangeCache.update(user(7L, 25));
+        ageRangeCache.update(user(2L, 40));
+        ageRangeCache.update(user(8L, 17));
+
+        assertEquals(List.of(7L, 3L), ids(ageRangeCache.find(19, 30)));
+        verify(userRepository, times(1)).findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any());
+    }
+
+    @Test
+    public void testRemove_PatchesCachedRange() {
+        when(userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any()))
+                .thenReturn(users(user(2L, 30), user(3L, 22)));
+        ageRangeCache.find(19, 30);
+
+        ageRangeCache.remove(2L);
+
+        assertEquals(List.of(3L), ids(ageRangeCache.find(19, 30)));
+    }
+
+    @Test
+    public void testPatch_ReplacesCachedUser() {
+        when(userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any()))
+                .thenReturn(users(user(2L, 30), user(3L, 22)));
+        List<User> before = ageRangeCache.find(19, 30);
+
+        ageRangeCache.patch(3L, cached -> cached.toBuilder().phone("+380501234567").build());
+
+        List<User> after = ageRangeCache.find(19, 30);
+        assertEquals(List.of(2L, 3L), ids(after));
+        assertEquals("+380501234567", after.get(1).getPhone());
+        assertNull(before.get(1).getPhone());
+    }
+
+    @Test
+    public void testFind_ReturnsCopies() {
+        when(userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any()))
+                .thenReturn(users(user(2L, 30)));
+
+        ageRangeCache.find(19, 30).get(0).setPhone("+380501234567");
+
+        assertNull(ageRangeCache.find(19, 30).get(0).getPhone());
+    }
+
+    @Test
+    public void testFind_WriteDuringLoadIsNotCached() {
+        when(userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any())).thenAnswer(invocation -> {
+            ageRangeCache.update(user(7L, 25));
+            return users(user(2L, 30));
+        });
+
+        ageRangeCache.find(19, 30);
+        ageRangeCache.find(19, 30);
+
+        verify(userRepository, times(2)).findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any());
+    }
+
+    @Test
+    public void testFind_LargeResultIsNotCached() {
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 101; id++) {
+            users.add(user(id, 25));
+        }
+        when(userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any())).thenReturn(users);
+
+        ageRangeCache.find(18, 122);
+        ageRangeCache.find(18, 122);
+
+        verify(userRepository, times(2)).findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any());
+    }
+
+    private User user(Long id, int age) {
+        return User.builder().id(id).birthday(today.minusYears(age)).build();
+    }
+
+    private List<User> users(User... users) {
+        return new ArrayList<>(List.of(users));
+    }
+
+    private List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+}
@@ -0,0 +1,94 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.index.BirthdayIndex;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.BirthdayRange;
+import com.clearsolutions.users.user.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.clearsolutions.users.StatementAssertions.assertStatements;
+import static com.clearsolutions.users.TestUsers.createRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "validation.user-birthday-index-enabled=true")
+public class BirthdayIndexTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BirthdayIndex birthdayIndex;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+        birthdayIndex.rebuild();
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_FollowsWrites() {
+        LocalDate today = LocalDate.now();
+        assertTrue(birthdayIndex.isReady());
+
+        userService.createUser(createRequest("twenty@domain.com", today.minusYears(20)));
+        userService.createUser(createRequest("forty@domain.com", today.minusYears(40)));
+        userService.createUser(createRequest("thirty@domain.com", today.minusYears(30)));
+
+        assertEquals(List.of("forty@domain.com", "thirty@domain.com", "twenty@domain.com"), emails(userService.getUsersByAgeRange(18, 122)));
+        assertEquals(List.of("thirty@domain.com", "twenty@domain.com"), emails(userService.getUsersByAgeRange(20, 30)));
+
+        Long fortyId = userService.getUserByEmail("forty@domain.com").getId();
+        userService.updateUser(fortyId, UserUpdateRequest.builder()
+                .email("forty@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(today.minusYears(25))
+                .build());
+        userService.deleteUser(userService.getUserByEmail("thirty@domain.com").getId());
+
+        assertEquals(List.of("forty@domain.com", "twenty@domain.com"), emails(userService.getUsersByAgeRange(20, 30)));
+        assertEquals(List.of(), emails(userService.getUsersByAgeRange(31, 122)));
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_ServedFromMemory() {
+        LocalDate today = LocalDate.now();
+        userService.createUser(createRequest("twenty@domain.com", today.minusYears(20)));
+        userService.createUser(createRequest("thirty@domain.com", today.minusYears(30)));
+        // loads the users the user cache does not hold yet
+        userService.getUsersByAgeRange(18, 50);
+
+        List<User> users = new ArrayList<>();
+        assertStatements(0, () -> users.addAll(userService.getUsersByAgeRange(18, 50)));
+        assertEquals(List.of("thirty@domain.com", "twenty@domain.com"), emails(users));
+        assertStatements(0, () -> users.addAll(birthdayIndex.find(BirthdayRange.of(25, 35, today))));
+        assertEquals(List.of("thirty@domain.com", "twenty@domain.com", "thirty@domain.com"), emails(users));
+    }
+
+    @Test
+    public void testDeleteUser_RemovesKey() {
+        LocalDate today = LocalDate.now();
+        userService.createUser(createRequest("thirty@domain.com", today.minusYears(30)));
+
+        userService.deleteUser(userService.getUserByEmail("thirty@domain.com").getId());
+
+        // a key left behind would make find look the user up
+        assertStatements(0, () -> assertEquals(List.of(), birthdayIndex.find(BirthdayRange.of(18, 122, today))));
+    }
+
+    private List<String> emails(List<User> users) {
+        return users.stream().map(User::getEmail).toList();
+    }
+}
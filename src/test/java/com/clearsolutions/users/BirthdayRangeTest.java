@@ -0,0 +1,44 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.service.BirthdayRange;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BirthdayRangeTest {
+
+    @Test
+    public void testOf_MatchesPeriodBasedAge() {
+        int[][] ranges = {{18, 122}, {19, 30}, {0, 0}, {21, 21}, {1, 4}};
+        LocalDate[] todays = {
+                LocalDate.of(2024, 2, 28), LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 1),
+                LocalDate.of(2023, 2, 28), LocalDate.of(2023, 3, 1), LocalDate.of(2023, 12, 31)
+        };
+
+        for (LocalDate today : todays) {
+            for (int[] range : ranges) {
+                BirthdayRange birthdayRange = BirthdayRange.of(range[0], range[1], today);
+
+                for (LocalDate birthday = today.minusYears(range[1] + 2L); !birthday.isAfter(today); birthday = birthday.plusDays(1)) {
+                    int age = Period.between(birthday, today).getYears();
+                    boolean expected = age >= range[0] && age <= range[1];
+
+                    assertEquals(expected, birthdayRange.contains(birthday),
+                            "today=" + today + " birthday=" + birthday + " range=" + range[0] + "-" + range[1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOf_LeapDayBirthday() {
+        LocalDate leapDay = LocalDate.of(2000, 2, 29);
+
+        assertFalse(BirthdayRange.of(18, 18, LocalDate.of(2018, 2, 28)).contains(leapDay));
+        assertTrue(BirthdayRange.of(18, 18, LocalDate.of(2018, 3, 1)).contains(leapDay));
+        assertTrue(BirthdayRange.of(17, 17, LocalDate.of(2018, 2, 28)).contains(leapDay));
+    }
+}
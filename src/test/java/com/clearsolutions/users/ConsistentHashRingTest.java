@@ -0,0 +1,60 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.shard.ConsistentHashRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+
+    private static final int IDS = 100_000;
+
+    @Test
+    public void testShardOf_Balanced() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 128);
+
+        int[] counts = new int[4];
+        for (long id = 1; id <= IDS; id++) {
+            counts[ring.shardOf(id)]++;
+        }
+
+        for (int count : counts) {
+            assertTrue(Math.abs(count - IDS / 4) < IDS / 4 * 0.2, "shard holds " + count + " of " + IDS);
+        }
+    }
+
+    @Test
+    public void testShardOf_SmallIdsSpread() {
+        ConsistentHashRing ring = new ConsistentHashRing(3, 128);
+
+        Set<Integer> shards = new HashSet<>();
+        for (long id = 1; id <= 100; id++) {
+            shards.add(ring.shardOf(id));
+        }
+        assertEquals(Set.of(0, 1, 2), shards);
+    }
+
+    @Test
+    public void testShardOf_AddedShardOnlyTakesIds() {
+        ConsistentHashRing before = new ConsistentHashRing(4, 128);
+        ConsistentHashRing after = new ConsistentHashRing(5, 128);
+
+        int moved = 0;
+        for (long id = 1; id <= IDS; id++) {
+            int shard = after.shardOf(id);
+            if (shard != before.shardOf(id)){
+                assertEquals(4, shard);
+                moved++;
+            }
+        }
+        assertTrue(Math.abs(moved - IDS / 5) < IDS / 5 * 0.2, moved + " of " + IDS + " ids moved");
+    }
+
+    @Test
+    public void testConstructor_WithoutShards() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0, 128));
+    }
+}
@@ -0,0 +1,41 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.config.DatabaseBulkheadFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatabaseBulkheadFilterTest {
+
+    @Test
+    public void testDoFilter_RejectsWhenNoPermitLeft() throws Exception {
+        DatabaseBulkheadFilter filter = new DatabaseBulkheadFilter(1, Duration.ofMillis(10));
+        MockHttpServletResponse inner = new MockHttpServletResponse();
+        AtomicInteger handled = new AtomicInteger();
+
+        // the second request arrives while the first one still holds the only permit
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> {
+            handled.incrementAndGet();
+            filter.doFilter(new MockHttpServletRequest(), inner, (innerRequest, innerResponse) -> handled.incrementAndGet());
+        });
+
+        assertEquals(1, handled.get());
+        assertEquals(503, inner.getStatus());
+    }
+
+    @Test
+    public void testDoFilter_ReleasesPermit() throws Exception {
+        DatabaseBulkheadFilter filter = new DatabaseBulkheadFilter(1, Duration.ofMillis(10));
+        AtomicInteger handled = new AtomicInteger();
+
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> handled.incrementAndGet());
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> handled.incrementAndGet());
+
+        assertEquals(2, handled.get());
+    }
+}
@@ -0,0 +1,125 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.clearsolutions.users.TestUsers.createRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ReactiveUserControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testCreateUser_VisibleToJpa() {
+        webTestClient.post().uri("/users")
+                .bodyValue(createRequest("JohnDoe@Domain.com", LocalDate.of(1999, 2, 22)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("User was created successfully");
+
+        assertEquals("johndoe@domain.com", userRepository.findAll().get(0).getEmail());
+    }
+
+    @Test
+    public void testCreateUser_EmailTaken() {
+        webTestClient.post().uri("/users").bodyValue(createRequest("johndoe@domain.com", LocalDate.of(1999, 2, 22)))
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.post().uri("/users").bodyValue(createRequest("johndoe@domain.com", LocalDate.of(1999, 2, 22)))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Invalid email!");
+    }
+
+    @Test
+    public void testCreateUser_FirstNameTooLong() {
+        UserCreateRequest request = UserCreateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("J".repeat(256))
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+
+        webTestClient.post().uri("/users").bodyValue(request)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Invalid user!");
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_StreamsMatchingUsers() {
+        LocalDate today = LocalDate.now();
+        webTestClient.post().uri("/users").bodyValue(createRequest("young@domain.com", today.minusYears(20)))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post().uri("/users").bodyValue(createRequest("old@domain.com", today.minusYears(60)))
+                .exchange()
+                .expectStatus().isOk();
+
+        List<User> users = webTestClient.get().uri("/users?from=18&to=30")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(users);
+        assertEquals(1, users.size());
+        assertEquals("young@domain.com", users.get(0).getEmail());
+    }
+
+    @Test
+    public void testUpdateAndDeleteUser() {
+        webTestClient.post().uri("/users").bodyValue(createRequest("johndoe@domain.com", LocalDate.of(1999, 2, 22)))
+                .exchange()
+                .expectStatus().isOk();
+        Long userId = userRepository.findAll().get(0).getId();
+
+        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("Jane")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .city("Kyiv")
+                .build();
+        webTestClient.patch().uri("/users/{id}", userId).bodyValue(userUpdateRequest)
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get().uri("/users/{id}", userId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.first_name").isEqualTo("Jane")
+                .jsonPath("$.address.city").isEqualTo("Kyiv")
+                .jsonPath("$.birthday").isEqualTo("22-02-1999");
+
+        webTestClient.delete().uri("/users/{id}", userId).exchange().expectStatus().isOk();
+        webTestClient.delete().uri("/users/{id}", userId).exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/users/{id}", userId).exchange().expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,227 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.config.ReadYourWrites;
+import com.clearsolutions.users.config.ReplicaRoutingDataSource;
+import com.clearsolutions.users.user.cache.AgeRangeCache;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.clearsolutions.users.TestUsers.createRequest;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Primary and replica are two H2 databases; the replica is brought up to date by copying the primary with SCRIPT.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "datasource.replicas.enabled=true",
+        "datasource.replicas.urls=jdbc:h2:mem:routing-replica;IFEXISTS=TRUE",
+        "datasource.replicas.stickiness=1s",
+        "datasource.replicas.health-check-interval=3600000",
+        "spring.datasource.hikari.connection-timeout=250"
+})
+@AutoConfigureMockMvc
+public class ReplicaRoutingTest {
+
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-replica";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AgeRangeCache ageRangeCache;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private Connection replica;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        routingDataSource = dataSource.unwrap(ReplicaRoutingDataSource.class);
+        replica = DriverManager.getConnection(REPLICA_URL, dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+        replicate();
+        // the pool may still hold connections to the replica shut down by the previous test
+        while (replicaHealthy() == 0) {
+            routingDataSource.checkReplicas();
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        userRepository.deleteAll();
+        shutDownReplica();
+    }
+
+    @Test
+    public void testRead_ReplicaAfterStickiness() throws Exception {
+        ReadYourWrites.start(null, written -> {});
+        try {
+            userService.createUser(createRequest("primary@domain.com"));
+            assertTrue(routingDataSource.readsFromPrimary());
+            // read-your-writes: the replica does not have the user yet
+            assertTrue(userRepository.findByEmail("primary@domain.com").isPresent());
+
+            awaitStickiness();
+            double replicaReads = routed("replica-0", "read-only");
+            assertFalse(userRepository.findByEmail("primary@domain.com").isPresent());
+            assertEquals(replicaReads + 1, routed("replica-0", "read-only"));
+        } finally {
+            ReadYourWrites.stop();
+        }
+
+        replicate();
+        assertTrue(userRepository.findByEmail("primary@domain.com").isPresent());
+    }
+
+    @Test
+    public void testRead_OtherClientsReadReplica() {
+        ReadYourWrites.start(null, written -> {});
+        try {
+            userService.createUser(createRequest("primary@domain.com"));
+        } finally {
+            ReadYourWrites.stop();
+        }
+
+        assertFalse(routingDataSource.readsFromPrimary());
+        assertFalse(userRepository.findByEmail("primary@domain.com").isPresent());
+    }
+
+    @Test
+    public void testRead_ClientWithLastWriteCookie() throws Exception {
+        Cookie lastWrite = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"email": "primary@domain.com", "first_name": "John", "last_name": "Doe", "birthday": "22-02-1999"}"""))
+                .andExpect(status().isOk())
+                .andExpect(cookie().exists("last-write"))
+                .andReturn().getResponse().getCookie("last-write");
+
+        mockMvc.perform(get("/users/page").cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(1));
+        mockMvc.perform(get("/users/page"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(0))
+                .andExpect(cookie().doesNotExist("last-write"));
+    }
+
+    @Test
+    public void testRead_CacheLoadOnPrimaryAfterWrite() {
+        userService.createUser(createRequest("primary@domain.com"));
+
+        assertFalse(userRepository.findByEmail("primary@domain.com").isPresent());
+        assertEquals(List.of("primary@domain.com"), ageRangeCache.find(18, 122).stream().map(User::getEmail).toList());
+    }
+
+    @Test
+    public void testWrite_Primary() throws Exception {
+        double primaryWrites = routed("primary", "read-write");
+
+        userService.createUser(createRequest("primary@domain.com"));
+
+        assertTrue(routed("primary", "read-write") > primaryWrites);
+        try (Statement statement = replica.createStatement();
+             ResultSet count = statement.executeQuery("select count(*) from users")) {
+            count.next();
+            assertEquals(0, count.getLong(1));
+        }
+    }
+
+    @Test
+    public void testRead_PrimaryWithoutHealthyReplica() throws Exception {
+        userService.createUser(createRequest("primary@domain.com"));
+        shutDownReplica();
+
+        double primaryReads = routed("primary", "read-only");
+        assertTrue(userRepository.findByEmail("primary@domain.com").isPresent());
+        assertEquals(primaryReads + 1, routed("primary", "read-only"));
+        assertEquals(0, replicaHealthy());
+    }
+
+    /**
+     * Replaces the replica with a copy of the primary.
+     */
+    private void replicate() throws SQLException {
+        List<String> script = new ArrayList<>();
+        try (Connection primary = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+             Statement statement = primary.createStatement();
+             ResultSet rows = statement.executeQuery("SCRIPT")) {
+            while (rows.next()) {
+                script.add(rows.getString(1));
+            }
+        }
+
+        try (Statement statement = replica.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            for (String line : script) {
+                if (!line.startsWith("CREATE USER")){
+                    statement.execute(line);
+                }
+            }
+        }
+    }
+
+    private void shutDownReplica() throws SQLException {
+        if (!replica.isClosed()){
+            try (Statement statement = replica.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+        }
+        routingDataSource.checkReplicas();
+    }
+
+    private void awaitStickiness() throws InterruptedException {
+        while (routingDataSource.readsFromPrimary()) {
+            Thread.sleep(20);
+        }
+    }
+
+    private double replicaHealthy() {
+        return meterRegistry.get("db.replicas.healthy").tag("pool", "replica-0").gauge().value();
+    }
+
+    private double routed(String pool, String access) {
+        return meterRegistry.get("db.connections.routed").tag("pool", pool).tag("access", access).counter().count();
+    }
+}
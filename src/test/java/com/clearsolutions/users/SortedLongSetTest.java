@@ -0,0 +1,53 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.index.SortedLongSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedLongSetTest {
+
+    @Test
+    public void testMatchesTreeSet() {
+        SortedLongSet set = new SortedLongSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(20_000);
+            if (random.nextInt(3) == 0){
+                assertEquals(expected.remove(key), set.remove(key));
+            }else {
+                assertEquals(expected.add(key), set.add(key));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertEquals(new ArrayList<>(expected.subSet(5_000L, true, 15_000L, true)), range(set, 5_000, 15_000));
+        assertEquals(new ArrayList<>(expected), range(set, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testAppend() {
+        SortedLongSet set = new SortedLongSet();
+        for (long key = 0; key < 10_000; key += 2) {
+            set.append(key);
+        }
+
+        assertTrue(set.add(5));
+        assertFalse(set.add(6));
+        assertEquals(List.of(4L, 5L, 6L, 8L), range(set, 3, 9));
+        assertThrows(IllegalArgumentException.class, () -> set.append(0));
+    }
+
+    private List<Long> range(SortedLongSet set, long from, long to) {
+        List<Long> keys = new ArrayList<>();
+        set.forEachInRange(from, to, keys::add);
+        return keys;
+    }
+}
@@ -0,0 +1,30 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.metrics.StatementCounter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Statement counts of an operation run against the real database, to catch extra round trips that tests
+ * with a mocked repository cannot see.
+ */
+public final class StatementAssertions {
+
+    private StatementAssertions() {
+    }
+
+    public static StatementCounter countStatements(Runnable operation) {
+        StatementCounter counter = StatementCounter.start();
+        try {
+            operation.run();
+        } finally {
+            StatementCounter.stop();
+        }
+        return counter;
+    }
+
+    public static void assertStatements(int expected, Runnable operation) {
+        StatementCounter counter = countStatements(operation);
+        assertEquals(expected, counter.total(), "statements executed: " + counter);
+    }
+}
@@ -0,0 +1,39 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+
+import java.time.LocalDate;
+
+/**
+ * John Doe with only the required fields, for tests that need valid users and care about their email at most.
+ */
+public final class TestUsers {
+
+    public static final LocalDate BIRTHDAY = LocalDate.of(1999, 2, 22);
+
+    private TestUsers() {
+    }
+
+    public static UserCreateRequest createRequest(String email) {
+        return createRequest(email, BIRTHDAY);
+    }
+
+    public static UserCreateRequest createRequest(String email, LocalDate birthday) {
+        return UserCreateRequest.builder()
+                .email(email)
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(birthday)
+                .build();
+    }
+
+    public static User user(String email) {
+        return User.builder()
+                .email(email)
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(BIRTHDAY)
+                .build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.cache.UserCache;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.properties.UserCacheProperties;
+import com.clearsolutions.users.user.model.properties.UserShardingProperties;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.shard.UserDirectory;
+import com.clearsolutions.users.user.shard.UserShards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserDirectory userDirectory;
+
+    private UserCache userCache;
+
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        UserCacheProperties userCacheProperties = new UserCacheProperties();
+        userCacheProperties.setMaximumSize(100L);
+        userCacheProperties.setExpireAfterWrite(Duration.ofMinutes(1));
+
+        userCache = new UserCache(userRepository, new UserShards(new UserShardingProperties()), userDirectory, userCacheProperties);
+
+        user = User.builder()
+                .id(1L)
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+    }
+
+    @Test
+    public void testFindById_ReadsThrough() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        assertEquals("John", userCache.findById(1L).orElseThrow().getFirstName());
+        assertEquals("John", userCache.findById(1L).orElseThrow().getFirstName());
+
+        verify(userRepository, times(1)).findById(1L);
+        assertEquals(1, userCache.stats().idHitCount());
+        assertEquals(1, userCache.stats().idMissCount());
+    }
+
+    @Test
+    public void testFindById_ReturnsCopies() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        userCache.findById(1L).orElseThrow().setFirstName("Changed");
+
+        assertEquals("John", userCache.findById(1L).orElseThrow().getFirstName());
+    }
+
+    @Test
+    public void testFindByEmail_UsesIdCache() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        userCache.findById(1L);
+
+        assertEquals(1L, userCache.findByEmail("johndoe@domain.com").orElseThrow().getId());
+
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    public void testFindAllById_ReadsOnlyMisses() {
+        User jane = user.toBuilder().id(2L).email("janedoe@domain.com").firstName("Jane").build();
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(jane));
+        userCache.findById(1L);
+
+        Map<Long, User> users = userCache.findAllById(List.of(1L, 2L, 3L));
+
+        assertEquals(Set.of(1L, 2L), users.keySet());
+        assertEquals("Jane", users.get(2L).getFirstName());
+        assertEquals("Jane", userCache.findById(2L).orElseThrow().getFirstName());
+        verify(userRepository, times(1)).findById(anyLong());
+    }
+
+    @Test
+    public void testEvict() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        userCache.findById(1L);
+
+        userCache.evict(1L);
+        userCache.findById(1L);
+
+        verify(userRepository, times(2)).findById(1L);
+    }
+}
@@ -0,0 +1,104 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserCborTest {
+
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testCreateAndGetUser_Cbor() throws Exception {
+        LocalDate birthday = LocalDate.of(1999, 2, 22);
+        byte[] request = cborMapper.writeValueAsBytes(Map.of(
+                "email", "johndoe@domain.com",
+                "first_name", "John",
+                "last_name", "Doe",
+                "birthday", birthday.toEpochDay()));
+
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_CBOR).content(request))
+                .andExpect(status().isOk());
+        Long userId = userRepository.findByEmail("johndoe@domain.com").orElseThrow().getId();
+
+        byte[] response = mockMvc.perform(get("/users/{user-id}", userId).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode user = cborMapper.readTree(response);
+        assertEquals("John", user.get("first_name").asText());
+        assertEquals(birthday.toEpochDay(), user.get("birthday").asLong());
+    }
+
+    @Test
+    public void testCreateUser_CborStringBirthdayRejected() throws Exception {
+        byte[] request = cborMapper.writeValueAsBytes(Map.of(
+                "email", "johndoe@domain.com",
+                "first_name", "John",
+                "last_name", "Doe",
+                "birthday", "22-02-1999"));
+
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_CBOR).content(request))
+                .andExpect(status().isBadRequest());
+        assertTrue(userRepository.findByEmail("johndoe@domain.com").isEmpty());
+    }
+
+    @Test
+    public void testGetUser_JsonUnchanged() throws Exception {
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"johndoe@domain.com\",\"first_name\":\"John\",\"last_name\":\"Doe\",\"birthday\":\"22-02-1999\"}"))
+                .andExpect(status().isOk());
+        Long userId = userRepository.findByEmail("johndoe@domain.com").orElseThrow().getId();
+
+        mockMvc.perform(get("/users/{user-id}", userId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("{\"birthday\":\"22-02-1999\"}"));
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_VariesByAccept() throws Exception {
+        String etag = mockMvc.perform(get("/users").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/users").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+    }
+}
@@ -0,0 +1,141 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.model.entity.UserChange;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.model.response.UserChangeEvent;
+import com.clearsolutions.users.user.model.response.UserChangeFeed;
+import com.clearsolutions.users.user.outbox.UserChangeOutbox;
+import com.clearsolutions.users.user.outbox.UserChangeRelay;
+import com.clearsolutions.users.user.repository.UserChangeRepository;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.IllegalTransactionStateException;
+
+import java.util.List;
+
+import static com.clearsolutions.users.TestUsers.createRequest;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserChangeOutboxTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserChangeOutbox userChangeOutbox;
+
+    @Autowired
+    private UserChangeRelay userChangeRelay;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserChangeRepository userChangeRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Every test writing users leaves their changes behind in the shared database; only this class reads them.
+     */
+    @BeforeEach
+    public void setUp() {
+        userChangeRepository.deleteAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testGetChanges_InCommitOrder() throws Exception {
+        userService.createUser(createRequest("johndoe@domain.com"));
+        Long userId = userRepository.findByEmail("johndoe@domain.com").orElseThrow().getId();
+        userService.updateUser(userId, UserUpdateRequest.builder().city("Lviv").build());
+        userService.deleteUser(userId);
+
+        userChangeRelay.relay();
+
+        mockMvc.perform(get("/users/changes").param("since", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes.length()").value(3))
+                .andExpect(jsonPath("$.changes[0].sequence").value(1))
+                .andExpect(jsonPath("$.changes[0].type").value("CREATED"))
+                .andExpect(jsonPath("$.changes[0].user_id").value(userId))
+                .andExpect(jsonPath("$.changes[0].payload.email").value("johndoe@domain.com"))
+                .andExpect(jsonPath("$.changes[1].type").value("UPDATED"))
+                .andExpect(jsonPath("$.changes[1].payload.address.city").value("Lviv"))
+                .andExpect(jsonPath("$.changes[1].payload.email").doesNotExist())
+                .andExpect(jsonPath("$.changes[2].type").value("DELETED"))
+                .andExpect(jsonPath("$.changes[2].payload").doesNotExist())
+                .andExpect(jsonPath("$.next_since").value(3));
+    }
+
+    @Test
+    public void testGetChanges_ContinuesFromNextSince() {
+        userService.createUser(createRequest("first@domain.com"));
+        userService.createUser(createRequest("second@domain.com"));
+        userChangeRelay.relay();
+
+        UserChangeFeed first = userChangeOutbox.getChanges(0, 1);
+        assertEquals(1, first.changes().size());
+        UserChangeFeed second = userChangeOutbox.getChanges(first.nextSince(), 10);
+        assertEquals(List.of(first.nextSince() + 1), second.changes().stream().map(UserChangeEvent::sequence).toList());
+
+        UserChangeFeed empty = userChangeOutbox.getChanges(second.nextSince(), 10);
+        assertEquals(0, empty.changes().size());
+        assertEquals(second.nextSince(), empty.nextSince());
+    }
+
+    @Test
+    public void testRelay_NumbersOnFromPublished() {
+        userService.createUser(createRequest("first@domain.com"));
+        userChangeRelay.relay();
+        userService.createUser(createRequest("second@domain.com"));
+        userChangeRelay.relay();
+
+        assertEquals(0, userChangeRelay.publishBatch());
+        assertEquals(List.of(1L, 2L), userChangeRepository.findAll().stream().map(UserChange::getSequence).sorted().toList());
+    }
+
+    @Test
+    public void testCreateUser_FailedCreateRecordsNoChange() {
+        userService.createUser(createRequest("johndoe@domain.com"));
+
+        assertThrows(BadRequestException.class, () -> userService.createUser(createRequest("johndoe@domain.com")));
+        assertEquals(1, userChangeRepository.count());
+    }
+
+    @Test
+    public void testImportUsers_RecordsCreatedUsers() {
+        userService.importUsers(List.of(createRequest("first@domain.com"), createRequest("second@domain.com")), 0);
+
+        assertEquals(2, userChangeRepository.count());
+    }
+
+    @Test
+    public void testDeleted_WithoutTransaction() {
+        assertThrows(IllegalTransactionStateException.class, () -> userChangeOutbox.deleted(1L));
+    }
+
+    @Test
+    public void testGetChanges_WithInvalidLimit() {
+        assertThrows(BadRequestException.class, () -> userChangeOutbox.getChanges(0, 0));
+        assertThrows(BadRequestException.class, () -> userChangeOutbox.getChanges(-1, 10));
+    }
+}
@@ -0,0 +1,162 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.model.entity.Address;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.response.UserImportResult;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserCsvService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.clearsolutions.users.TestUsers.user;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"csv.users.chunk-size=2", "csv.users.parallelism=2"})
+@AutoConfigureMockMvc
+public class UserCsvServiceTest {
+
+    private static final String HEADER = "id,email,first_name,last_name,birthday,phone,country,city,street,house_number,apartment_number";
+
+    @Autowired
+    private UserCsvService userCsvService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testExportUsers_OrderedByIdAcrossChunks() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            users.add(user("user" + i + "@domain.com"));
+        }
+        users.get(3).setAddress(Address.builder().city("Kyiv, \"centre\"").street("Main").houseNumber(23L).build());
+        List<User> saved = userRepository.saveAll(users);
+
+        String[] lines = export().split("\n");
+
+        assertEquals(8, lines.length);
+        assertEquals(HEADER, lines[0]);
+        for (int i = 0; i < 7; i++) {
+            assertTrue(lines[i + 1].startsWith(saved.get(i).getId() + ",user" + i + "@domain.com,John,Doe,22-02-1999,"));
+        }
+        assertEquals(saved.get(3).getId() + ",user3@domain.com,John,Doe,22-02-1999,,,\"Kyiv, \"\"centre\"\"\",Main,23,", lines[4]);
+    }
+
+    @Test
+    public void testExportUsers_Empty() throws Exception {
+        assertEquals(HEADER + "\n", export());
+    }
+
+    @Test
+    public void testImportUsers_RoundTrip() throws Exception {
+        User user = user("john@domain.com");
+        user.setPhone("+380765432105");
+        user.setAddress(Address.builder().country("Ukraine").city("Kyiv, \"centre\"").street("Main").houseNumber(23L).apartmentNumber(7L).build());
+        userRepository.save(user);
+        String exported = export();
+        userRepository.deleteAll();
+
+        UserImportResult result = importCsv(exported);
+
+        assertEquals(1, result.created());
+        assertEquals(List.of(), result.errors());
+        User imported = userRepository.findByEmail("john@domain.com").orElseThrow();
+        assertEquals(LocalDate.of(1999, 2, 22), imported.getBirthday());
+        assertEquals("+380765432105", imported.getPhone());
+        assertEquals("Kyiv, \"centre\"", imported.getAddress().getCity());
+        assertEquals(23L, imported.getAddress().getHouseNumber());
+        assertEquals(7L, imported.getAddress().getApartmentNumber());
+    }
+
+    @Test
+    public void testImportUsers_ErrorsAcrossChunks() throws Exception {
+        // taken before the import: chunks run in parallel, so a duplicate within the file may lose either way
+        userRepository.save(user("taken@domain.com"));
+        String csv = """
+                last_name,first_name,email,birthday,house_number
+                Doe,John,first@domain.com,22-02-1999,1
+                Doe,John,invalid,22-02-1999,
+                Doe,John,second@domain.com,1999-02-22,
+                Doe,John,third@domain.com,22-02-1999,one
+                Doe,John,taken@domain.com,22-02-1999,
+                Doe,,fourth@domain.com,22-02-1999,
+                Doe,John,fifth@domain.com,22-02-1999,
+                """;
+
+        UserImportResult result = importCsv(csv);
+
+        assertEquals(2, result.created());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), result.errors().stream().map(error -> error.row()).toList());
+        assertEquals("Invalid email!", result.errors().get(0).message());
+        assertEquals("Invalid birthday!", result.errors().get(1).message());
+        assertEquals("Invalid house number!", result.errors().get(2).message());
+        assertEquals("Invalid email!", result.errors().get(3).message());
+        assertEquals("First name cannot be null!", result.errors().get(4).message());
+        assertEquals(1L, userRepository.findByEmail("first@domain.com").orElseThrow().getAddress().getHouseNumber());
+        assertTrue(userRepository.findByEmail("fifth@domain.com").isPresent());
+    }
+
+    @Test
+    public void testImportUsers_MissingHeader() {
+        assertThrows(BadRequestException.class, () -> importCsv("John,Doe\n"));
+    }
+
+    @Test
+    public void testImportUsers_UnterminatedQuote() {
+        String csv = HEADER + "\n,john@domain.com,John,Doe,22-02-1999,,,Kyiv,,,\n,\"jane@domain.com,Jane,Doe,22-02-1999,,,Kyiv,,,\n";
+
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> importCsv(csv));
+
+        assertEquals("Malformed user at row 1!", exception.getMessage());
+    }
+
+    @Test
+    public void testCsvEndpoints() throws Exception {
+        mockMvc.perform(post("/users/bulk").contentType("text/csv")
+                        .content(HEADER + "\n,john@domain.com,John,Doe,22-02-1999,,,Kyiv,,,\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1));
+
+        mockMvc.perform(get("/users/export").accept("text/csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.valueOf("text/csv")))
+                .andExpect(content().string(containsString(",john@domain.com,John,Doe,22-02-1999,,,Kyiv,,,")));
+    }
+
+    private String export() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        userCsvService.exportUsers(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private UserImportResult importCsv(String csv) throws Exception {
+        return userCsvService.importUsers(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,70 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.model.entity.Address;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserExportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class UserExportServiceTest {
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testExportUsersByAgeRange() throws Exception {
+        userRepository.saveAll(List.of(
+                user("young@domain.com", LocalDate.now().minusYears(20)),
+                user("old@domain.com", LocalDate.of(1970, 1, 2)),
+                user("child@domain.com", LocalDate.now().minusYears(10))));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        userExportService.exportUsersByAgeRange(18, 122, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"email\":\"old@domain.com\""));
+        assertTrue(lines[0].contains("\"first_name\":\"John\""));
+        assertTrue(lines[0].contains("\"birthday\":\"02-01-1970\""));
+        assertTrue(lines[0].contains("\"house_number\":23"));
+        assertTrue(lines[1].contains("\"email\":\"young@domain.com\""));
+    }
+
+    @Test
+    public void testExportUsersByAgeRange_InvalidRange() {
+        assertThrows(BadRequestException.class,
+                () -> userExportService.exportUsersByAgeRange(30, 18, new ByteArrayOutputStream()));
+    }
+
+    private User user(String email, LocalDate birthday) {
+        return User.builder()
+                .email(email)
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(birthday)
+                .address(Address.builder().country("Ukraine").city("Kyiv").street("Shevchenka").houseNumber(23L).build())
+                .phone("+380765432105")
+                .build();
+    }
+}
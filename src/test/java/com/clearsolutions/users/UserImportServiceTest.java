@@ -0,0 +1,72 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.model.response.UserImportResult;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class UserImportServiceTest {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testImportUsers_JsonArray() throws Exception {
+        String body = "[" + user("first@domain.com") + "," + user("second@domain.com") + "," + user("first@domain.com") + "]";
+
+        UserImportResult result = userImportService.importUsers(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, result.created());
+        assertEquals(1, result.errors().size());
+        assertEquals(2, result.errors().get(0).row());
+        assertEquals(2, userRepository.count());
+    }
+
+    @Test
+    public void testImportUsers_Ndjson() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1200; i++) {
+            body.append(user("user" + i + "@domain.com")).append('\n');
+        }
+        body.append(user("invalid")).append('\n');
+
+        UserImportResult result = userImportService.importUsers(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1200, result.created());
+        assertEquals(1, result.errors().size());
+        assertEquals(1200, result.errors().get(0).row());
+        assertEquals(1200, userRepository.count());
+    }
+
+    @Test
+    public void testImportUsers_MalformedJson() {
+        String body = user("first@domain.com") + "\n{\"email\": \"second@domain.com\",";
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> userImportService.importUsers(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals("Malformed user at row 1!", exception.getMessage());
+    }
+
+    private String user(String email) {
+        return "{\"email\":\"" + email + "\",\"first_name\":\"John\",\"last_name\":\"Doe\",\"birthday\":\"22-02-1999\",\"city\":\"Kyiv\"}";
+    }
+}
@@ -0,0 +1,134 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "ingestion.users.enabled=true")
+@AutoConfigureMockMvc
+public class UserIngestionControllerTest {
+
+    private static final String USER = """
+            {"email": "%s", "first_name": "John", "last_name": "Doe", "birthday": "22-02-1999"}""";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testCreateUserAsync_Created() throws Exception {
+        String trackingId = submit("johndoe@domain.com");
+
+        JsonNode outcome = awaitOutcome(trackingId);
+        assertEquals("CREATED", outcome.get("status").asText());
+        assertEquals(userRepository.findByEmail("johndoe@domain.com").orElseThrow().getId(), outcome.get("user_id").asLong());
+    }
+
+    @Test
+    public void testCreateUserAsync_PreferWithOtherPreferences() throws Exception {
+        String response = mockMvc.perform(post("/users").header("Prefer", "return=minimal, Respond-Async; x=1, wait=5")
+                        .contentType(MediaType.APPLICATION_JSON).content(USER.formatted("johndoe@domain.com")))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("CREATED", awaitOutcome(objectMapper.readTree(response).get("tracking_id").asText()).get("status").asText());
+    }
+
+    @Test
+    public void testCreateUser_NoRespondAsyncPreference() throws Exception {
+        mockMvc.perform(post("/users").header("Prefer", "wait=5")
+                        .contentType(MediaType.APPLICATION_JSON).content(USER.formatted("johndoe@domain.com")))
+                .andExpect(status().isOk());
+
+        assertTrue(userRepository.findByEmail("johndoe@domain.com").isPresent());
+    }
+
+    @Test
+    public void testCreateUserAsync_SameEmailCreatedOnce() throws Exception {
+        List<String> trackingIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String response = mockMvc.perform(post("/users").header("Prefer", "respond-async")
+                            .contentType(MediaType.APPLICATION_JSON).content(USER.formatted("johndoe@domain.com")))
+                    .andReturn().getResponse().getContentAsString();
+            if (response.contains("tracking_id")){
+                trackingIds.add(objectMapper.readTree(response).get("tracking_id").asText());
+            }
+        }
+
+        int created = 0;
+        for (String trackingId : trackingIds) {
+            JsonNode outcome = awaitOutcome(trackingId);
+            if ("CREATED".equals(outcome.get("status").asText())){
+                created++;
+            }else {
+                assertEquals("Invalid email!", outcome.get("message").asText());
+            }
+        }
+        assertEquals(1, created);
+        assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    public void testCreateUserAsync_InvalidUser() throws Exception {
+        mockMvc.perform(post("/users").header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON).content(USER.formatted("invalid")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetUserIngestionStatus_NotFound() throws Exception {
+        mockMvc.perform(get("/users/ingestion/{tracking-id}", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    private String submit(String email) throws Exception {
+        String response = mockMvc.perform(post("/users").header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON).content(USER.formatted(email)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(header().exists(HttpHeaders.LOCATION))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("tracking_id").asText();
+    }
+
+    private JsonNode awaitOutcome(String trackingId) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            JsonNode status = objectMapper.readTree(mockMvc.perform(get("/users/ingestion/{tracking-id}", trackingId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            if (!"PENDING".equals(status.get("status").asText())){
+                return status;
+            }
+            Thread.sleep(50);
+        }
+        return fail("User " + trackingId + " is still pending");
+    }
+}
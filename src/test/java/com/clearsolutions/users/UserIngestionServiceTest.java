@@ -0,0 +1,109 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.advice.exceptions.TooManyRequestsException;
+import com.clearsolutions.users.user.model.properties.UserIngestionProperties;
+import com.clearsolutions.users.user.model.properties.UserProperties;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.response.UserIngestionStatus;
+import com.clearsolutions.users.user.service.UserIngestionService;
+import com.clearsolutions.users.user.service.UserService;
+import com.clearsolutions.users.user.validator.UserValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static com.clearsolutions.users.TestUsers.createRequest;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+public class UserIngestionServiceTest {
+
+    @Mock
+    private UserService userService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UserIngestionService userIngestionService;
+
+    @BeforeEach
+    public void setUp() {
+        UserProperties userProperties = new UserProperties();
+        userProperties.setUserEmailRegex("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+        userProperties.setUserMinAge(18);
+
+        // not enabled, so no writer drains the queue
+        UserIngestionProperties userIngestionProperties = new UserIngestionProperties();
+        userIngestionProperties.setEnabled(false);
+        userIngestionProperties.setQueueCapacity(2);
+        userIngestionProperties.setBatchSize(10);
+        userIngestionProperties.setStatusMaximumSize(100L);
+        userIngestionProperties.setStatusRetention(Duration.ofMinutes(1));
+
+        meterRegistry = new SimpleMeterRegistry();
+        userIngestionService = new UserIngestionService(userService, new UserValidator(userProperties),
+                userIngestionProperties, meterRegistry);
+    }
+
+    @Test
+    public void testSubmit_Pending() {
+        UserIngestionStatus status = userIngestionService.submit(createRequest("johndoe@domain.com"));
+
+        assertEquals(UserIngestionStatus.State.PENDING, status.status());
+        assertEquals(status, userIngestionService.getStatus(status.trackingId()).orElseThrow());
+        assertEquals(1, meterRegistry.get("users.ingestion.queue").gauge().value());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void testSubmit_InvalidUser() {
+        UserCreateRequest request = UserCreateRequest.builder()
+                .email("invalid")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> userIngestionService.submit(request));
+        assertEquals("Invalid email!", exception.getMessage());
+        assertEquals(0, meterRegistry.get("users.ingestion.queue").gauge().value());
+    }
+
+    @Test
+    public void testSubmit_EmailReserved() {
+        userIngestionService.submit(createRequest("johndoe@domain.com"));
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> userIngestionService.submit(createRequest("JohnDoe@domain.com")));
+        assertEquals("Invalid email!", exception.getMessage());
+    }
+
+    @Test
+    public void testSubmit_QueueFull() {
+        userIngestionService.submit(createRequest("first@domain.com"));
+        userIngestionService.submit(createRequest("second@domain.com"));
+
+        assertThrows(TooManyRequestsException.class, () -> userIngestionService.submit(createRequest("third@domain.com")));
+        assertEquals(2, meterRegistry.get("users.ingestion.queue").gauge().value());
+    }
+
+    @Test
+    public void testSubmit_AfterDestroy() throws InterruptedException {
+        userIngestionService.destroy();
+
+        assertThrows(TooManyRequestsException.class, () -> userIngestionService.submit(createRequest("johndoe@domain.com")));
+        assertEquals(0, meterRegistry.get("users.ingestion.queue").gauge().value());
+    }
+
+    @Test
+    public void testGetStatus_Unknown() {
+        assertTrue(userIngestionService.getStatus("unknown").isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.clearsolutions.users.StatementAssertions.countStatements;
+import static com.clearsolutions.users.TestUsers.createRequest;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserListingETagTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_NotModifiedWithoutQuery() throws Exception {
+        userService.createUser(createRequest("johndoe@domain.com"));
+
+        String etag = mockMvc.perform(get("/users").param("fields", "id,email"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("W/"));
+
+        assertEquals(0, countStatements(() -> {
+            try {
+                mockMvc.perform(get("/users").param("fields", "id,email").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isNotModified())
+                        .andExpect(header().string(HttpHeaders.ETAG, etag));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).total());
+    }
+
+    @Test
+    public void testGetUsersPageByAgeRange_ChangedAfterWrite() throws Exception {
+        userService.createUser(createRequest("johndoe@domain.com"));
+        Long userId = userRepository.findByEmail("johndoe@domain.com").orElseThrow().getId();
+
+        String etag = mockMvc.perform(get("/users/page"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        userService.updateUser(userId, UserUpdateRequest.builder().phone("+380501234567").build());
+
+        String changed = mockMvc.perform(get("/users/page").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    public void testGetUsersETag_ChangedOnlyAfterCommit() {
+        String etag = userService.getUsersETag();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.createUser(createRequest("johndoe@domain.com"));
+            assertEquals(etag, userService.getUsersETag());
+        });
+
+        assertNotEquals(etag, userService.getUsersETag());
+    }
+}
@@ -0,0 +1,76 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.index.UserSearchIndex;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.properties.UserSearchProperties;
+import com.clearsolutions.users.user.model.properties.UserShardingProperties;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.shard.UserShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserSearchIndexTest {
+
+    private static final LocalDate BIRTHDAY = LocalDate.of(1999, 2, 22);
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserSearchIndex userSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        UserSearchProperties userSearchProperties = new UserSearchProperties();
+        userSearchProperties.setEnabled(true);
+
+        userSearchIndex = new UserSearchIndex(userRepository, new UserShards(new UserShardingProperties()), userSearchProperties,
+                transactionManager);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userSearchIndex.destroy();
+    }
+
+    @Test
+    public void testRebuild_PatchOfUserNotIndexedYetIsReadAgain() {
+        // the first build streams John, then a patch renaming him to Jack commits while the current index is still empty
+        when(userRepository.streamSearchIndexEntries()).thenAnswer(invocation -> {
+            userSearchIndex.patch(1L, user -> {
+                user.setFirstName("Jack");
+                return user;
+            });
+            return Stream.<Object[]>of(new Object[]{1L, "jd@domain.com", "John", "Doe", null, BIRTHDAY});
+        });
+        when(userRepository.findAllById(any())).thenReturn(List.of(User.builder()
+                .id(1L)
+                .email("jd@domain.com")
+                .firstName("Jack")
+                .lastName("Doe")
+                .birthday(BIRTHDAY)
+                .build()));
+
+        userSearchIndex.rebuild();
+
+        assertEquals(List.of(1L), userSearchIndex.search("jack", BIRTHDAY, BIRTHDAY, 10));
+        assertEquals(List.of(), userSearchIndex.search("john", BIRTHDAY, BIRTHDAY, 10));
+        verify(userRepository).findAllById(List.of(1L));
+    }
+}
@@ -0,0 +1,154 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.index.UserSearchIndex;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserSearchTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp() {
+        // other tests sharing the context delete users through the repository, behind the index
+        userSearchIndex.rebuild();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testSearchUsers_NamesEmailAndCity() {
+        LocalDate today = LocalDate.now();
+        assertTrue(userSearchIndex.isReady());
+
+        userService.createUser(createRequest("john.doe@domain.com", "John", "Doe", "Kyiv", today.minusYears(30)));
+        userService.createUser(createRequest("johnny@mail.com", "Johnny", "Smith", "Lviv", today.minusYears(40)));
+        userService.createUser(createRequest("anna@domain.com", "Anna", "Johnson", "Kyiv", today.minusYears(20)));
+
+        // exact first name ranks above the prefix matches
+        assertEquals(List.of("john.doe@domain.com"), emails(userService.searchUsers("john", 18, 122, 20)).subList(0, 1));
+        assertEquals(3, userService.searchUsers("john", 18, 122, 20).size());
+        assertEquals(List.of("john.doe@domain.com", "anna@domain.com"), emails(userService.searchUsers("kyiv", 18, 122, 20)));
+        assertEquals(List.of("johnny@mail.com"), emails(userService.searchUsers("johnny@ma", 18, 122, 20)));
+        assertEquals(List.of("anna@domain.com"), emails(userService.searchUsers("John Kyiv", 18, 25, 20)));
+        assertEquals(1, userService.searchUsers("john", 18, 122, 1).size());
+        assertEquals(List.of(), userService.searchUsers("odessa", 18, 122, 20));
+    }
+
+    @Test
+    public void testSearchUsers_IgnoresRolledBackWrites() {
+        userService.createUser(createRequest("john.doe@domain.com", "John", "Doe", "Kyiv", LocalDate.now().minusYears(30)));
+        Long johnId = userRepository.findByEmail("john.doe@domain.com").orElseThrow().getId();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.deleteUser(johnId);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(List.of("john.doe@domain.com"), emails(userService.searchUsers("john", 18, 122, 20)));
+    }
+
+    @Test
+    public void testSearchUsers_FollowsWrites() {
+        userService.createUser(createRequest("john.doe@domain.com", "John", "Doe", "Kyiv", LocalDate.now().minusYears(30)));
+        Long userId = userService.getUserByEmail("john.doe@domain.com").getId();
+
+        userService.updateUser(userId, UserUpdateRequest.builder().lastName("Brown").city("Odessa").build());
+        assertEquals(List.of(), userService.searchUsers("doe", 18, 122, 20));
+        List<User> found = userService.searchUsers("brown odessa", 18, 122, 20);
+        assertEquals(List.of("john.doe@domain.com"), emails(found));
+        assertEquals("John", found.get(0).getFirstName());
+
+        userService.updateUser(userId, UserUpdateRequest.builder().birthday(LocalDate.now().minusYears(50)).build());
+        assertEquals(List.of(), userService.searchUsers("brown", 18, 40, 20));
+        assertEquals(1, userService.searchUsers("brown", 45, 122, 20).size());
+
+        userService.deleteUser(userId);
+        assertEquals(List.of(), userService.searchUsers("brown", 18, 122, 20));
+    }
+
+    @Test
+    public void testSearchUsers_InvalidParameters() {
+        assertThrows(BadRequestException.class, () -> userService.searchUsers(" ", 18, 122, 20));
+        assertThrows(BadRequestException.class, () -> userService.searchUsers("john", 30, 20, 20));
+        assertThrows(BadRequestException.class, () -> userService.searchUsers("john", 18, 122, 0));
+        assertThrows(BadRequestException.class, () -> userService.searchUsers("john", 18, 122, 101));
+    }
+
+    @Test
+    public void testSearchByPrefix_Fallback() {
+        LocalDate today = LocalDate.now();
+        userService.createUser(createRequest("john.doe@domain.com", "John", "Doe", "Kyiv", today.minusYears(30)));
+        userService.createUser(createRequest("jo_hn@domain.com", "Anna", "Smith", "Lviv", today.minusYears(30)));
+
+        assertEquals(List.of("john.doe@domain.com"), emails(userRepository.searchByPrefix(today.minusYears(123), today,
+                "kyi%", PageRequest.of(0, 20))));
+        assertEquals(List.of("jo_hn@domain.com"), emails(userRepository.searchByPrefix(today.minusYears(123), today,
+                "jo\\_%", PageRequest.of(0, 20))));
+    }
+
+    @Test
+    public void testSearchEndpoint() throws Exception {
+        userService.createUser(createRequest("john.doe@domain.com", "John", "Doe", "Kyiv", LocalDate.now().minusYears(30)));
+
+        mockMvc.perform(get("/users/search").param("q", "jo").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value("john.doe@domain.com"));
+        mockMvc.perform(get("/users/search").param("q", "jo").param("limit", "500"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static List<String> emails(List<User> users) {
+        return users.stream().map(User::getEmail).toList();
+    }
+
+    private static UserCreateRequest createRequest(String email, String firstName, String lastName, String city, LocalDate birthday) {
+        return UserCreateRequest.builder()
+                .email(email)
+                .firstName(firstName)
+                .lastName(lastName)
+                .city(city)
+                .birthday(birthday)
+                .build();
+    }
+}
@@ -0,0 +1,149 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.advice.exceptions.UserNotFoundException;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.clearsolutions.users.TestUsers.createRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class UserServiceIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testCreateUser_EmailTakenIgnoringCase() {
+        userService.createUser(createRequest("johndoe@domain.com"));
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> userService.createUser(createRequest("JohnDoe@Domain.com")));
+
+        assertEquals("Invalid email!", exception.getMessage());
+        assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    public void testUpdateUser_KeepsOwnEmail() {
+        userService.createUser(createRequest("johndoe@domain.com"));
+        User user = userRepository.findAll().get(0);
+
+        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("Jane")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+
+        assertEquals("User was updated successfully", userService.updateUser(user.getId(), userUpdateRequest));
+        assertEquals("Jane", userRepository.findById(user.getId()).orElseThrow().getFirstName());
+    }
+
+    @Test
+    public void testUpdateUser_EmailTakenByAnotherUser() {
+        userService.createUser(createRequest("johndoe@domain.com"));
+        userService.createUser(createRequest("janedoe@domain.com"));
+        User jane = userRepository.findAll().stream()
+                .filter(user -> user.getEmail().equals("janedoe@domain.com"))
+                .findFirst()
+                .orElseThrow();
+
+        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("Jane")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+
+        assertThrows(BadRequestException.class, () -> userService.updateUser(jane.getId(), userUpdateRequest));
+        assertThrows(BadRequestException.class,
+                () -> userService.updateUser(jane.getId(), UserUpdateRequest.builder().email("JohnDoe@domain.com").build()));
+    }
+
+    @Test
+    public void testUpdateUser_FirstNameTooLong() {
+        userService.createUser(createRequest("johndoe@domain.com"));
+        User john = userRepository.findAll().get(0);
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> userService.updateUser(john.getId(), UserUpdateRequest.builder().firstName("J".repeat(256)).build()));
+
+        assertEquals("Invalid user!", exception.getMessage());
+    }
+
+    @Test
+    public void testUpdateUser_OnlySuppliedFieldsAreWritten() {
+        userService.createUser(UserCreateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .country("Ukraine")
+                .city("Kyiv")
+                .build());
+        Long userId = userService.getUserByEmail("johndoe@domain.com").getId();
+
+        userService.updateUser(userId, UserUpdateRequest.builder().city("Lviv").phone("+380501234567").build());
+
+        User user = userService.getUser(userId);
+        assertEquals("John", user.getFirstName());
+        assertEquals(LocalDate.of(1999, 2, 22), user.getBirthday());
+        assertEquals("Ukraine", user.getAddress().getCountry());
+        assertEquals("Lviv", user.getAddress().getCity());
+        assertEquals("+380501234567", user.getPhone());
+        assertThrows(UserNotFoundException.class,
+                () -> userService.updateUser(userId + 1000, UserUpdateRequest.builder().phone("+380501234567").build()));
+    }
+
+    @Test
+    public void testDeleteUser_EvictsCachedUser() {
+        userService.createUser(createRequest("johndoe@domain.com"));
+        Long userId = userService.getUserByEmail("johndoe@domain.com").getId();
+
+        assertEquals("User was deleted successfully", userService.deleteUser(userId));
+
+        assertThrows(UserNotFoundException.class, () -> userService.getUser(userId));
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(userId));
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_LoadedDuringWriteSeesItAfterCommit() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.createUser(createRequest("johndoe@domain.com"));
+            // another transaction does not see the user yet and caches the range without it
+            assertEquals(List.of(), CompletableFuture.supplyAsync(() -> userService.getUsersByAgeRange(18, 60)).join());
+        });
+
+        User john = userRepository.findByEmail("johndoe@domain.com").orElseThrow();
+        assertEquals(List.of(john.getId()), userService.getUsersByAgeRange(18, 60).stream().map(User::getId).toList());
+
+        userService.deleteUser(john.getId());
+        assertEquals(List.of(), userService.getUsersByAgeRange(18, 60));
+    }
+}
@@ -0,0 +1,67 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.advice.exceptions.UserNotFoundException;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static com.clearsolutions.users.TestUsers.createRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class UserServiceMetricsTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testTimers_TaggedByOutcome() {
+        long created = count("createUser", "success");
+        long rejected = count("createUser", "BadRequestException");
+        long notFound = count("deleteUser", "UserNotFoundException");
+
+        userService.createUser(createRequest("johndoe@domain.com"));
+        assertThrows(BadRequestException.class, () -> userService.createUser(createRequest("johndoe")));
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(Long.MAX_VALUE));
+
+        assertEquals(created + 1, count("createUser", "success"));
+        assertEquals(rejected + 1, count("createUser", "BadRequestException"));
+        assertEquals(notFound + 1, count("deleteUser", "UserNotFoundException"));
+    }
+
+    @Test
+    public void testAgeRangeSize_Recorded() {
+        DistributionSummary sizes = meterRegistry.get("users.age-range.size").summary();
+        long count = sizes.count();
+        double total = sizes.totalAmount();
+        userService.createUser(createRequest("johndoe@domain.com"));
+
+        userService.getUsersByAgeRange(18, 122);
+
+        assertEquals(count + 1, sizes.count());
+        assertEquals(total + 1, sizes.totalAmount());
+    }
+
+    private long count(String method, String outcome) {
+        Timer timer = meterRegistry.find("users.service").tag("method", method).tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -1,469 +1,688 @@
-package com.clearsolutions.users;
-
-import com.clearsolutions.users.advice.exceptions.BadRequestException;
-import com.clearsolutions.users.advice.exceptions.UserNotFoundException;
-import com.clearsolutions.users.user.model.entity.Address;
-import com.clearsolutions.users.user.model.entity.User;
-import com.clearsolutions.users.user.model.properties.UserProperties;
-import com.clearsolutions.users.user.model.request.UserCreateRequest;
-import com.clearsolutions.users.user.model.request.UserUpdateRequest;
-import com.clearsolutions.users.user.repository.UserRepository;
-import com.clearsolutions.users.user.service.UserService;
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
-
-import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-
-import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.*;
-
-@ExtendWith(MockitoExtension.class)
-@AutoConfigureMockMvc(addFilters = false)
-public class UserServiceTest {
-
-    @Mock
-    private UserRepository userRepository;
-
-    @Mock
-    private UserProperties userProperties;
-
-    @InjectMocks
-    private UserService userService;
-
-    private User user;
-
-    @BeforeEach
-    public void setUp() {
-        Address address = Address.builder()
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .build();
-
-        user = User.builder()
-                .id(1L)
-                .email("johndoe@domain.com")
-                .firstName("John")
-                .lastName("Doe")
-                .birthday(LocalDate.of(1999, 2, 22))
-                .address(address)
-                .phone("+380765432105")
-                .build();
-    }
-
-    @Test
-    public void testCreateUser() {
-        UserCreateRequest userCreateRequest = UserCreateRequest.builder()
-                .email("johndoe@domain.com")
-                .firstName("John")
-                .lastName("Doe")
-                .birthday(LocalDate.of(1999, 2, 22))
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-        when(userProperties.getUserMinAge()).thenReturn(18);
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
-
-        String result = userService.createUser(userCreateRequest);
-
-        assertEquals("User was created successfully", result);
-        verify(userRepository, times(1)).save(any(User.class));
-    }
-
-    @Test
-    public void testCreateUser_WithEmailTaken() {
-        UserCreateRequest userCreateRequest = UserCreateRequest.builder()
-                .email("johndoe@domain.com")
-                .firstName("John")
-                .lastName("Doe")
-                .birthday(LocalDate.of(1999, 2, 22))
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-
-        when(userRepository.existsByEmail(anyString())).thenReturn(true);
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-
-        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testCreateUser_WithUserCreateRequestIsNull() {
-        assertThrows(BadRequestException.class, () -> userService.createUser(null));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testCreateUser_WithInvalidEmail() {
-        UserCreateRequest userCreateRequest = UserCreateRequest.builder()
-                .email("johndoe")
-                .firstName("John")
-                .lastName("Doe")
-                .birthday(LocalDate.of(1999, 2, 22))
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-
-
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-
-        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testCreateUser_firstNameIsNull() {
-        UserCreateRequest userCreateRequest1 = UserCreateRequest.builder()
-                .email("johndoe@domain.com")
-                .firstName(null)
-                .lastName("Doe")
-                .birthday(LocalDate.now().minusYears(17))
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-
-        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest1));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testCreateUser_lastNameIsNull() {
-        UserCreateRequest userCreateRequest1 = UserCreateRequest.builder()
-                .email("johndoe@domain.com")
-                .firstName("John")
-                .lastName(null)
-                .birthday(LocalDate.now().minusYears(17))
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-
-        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest1));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testCreateUser_birthdayIsNull() {
-        UserCreateRequest userCreateRequest1 = UserCreateRequest.builder()
-                .email("johndoe@domain.com")
-                .firstName("John")
-                .lastName("Doe")
-                .birthday(null)
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-
-        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest1));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testCreateUser_IsNotAdult() {
-        UserCreateRequest userCreateRequest1 = UserCreateRequest.builder()
-                .email("johndoe@domain.com")
-                .firstName("John")
-                .lastName("Doe")
-                .birthday(LocalDate.now().minusYears(17))
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-        when(userProperties.getUserMinAge()).thenReturn(18);
-
-        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest1));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testUpdateUser() {
-        Long userId = 1L;
-
-        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
-                .email("new-email@example.com")
-                .firstName("NewFirstName")
-                .lastName("NewLastName")
-                .birthday(LocalDate.of(2000, 1, 1))
-                .country("USA")
-                .city("New York")
-                .street("Main St")
-                .houseNumber(2L)
-                .apartmentNumber(2L)
-                .phone("+1234567890")
-                .build();
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-        when(userProperties.getUserMinAge()).thenReturn(18);
-
-        String result = userService.updateUser(userId, userUpdateRequest);
-
-        assertEquals("User was updated successfully", result);
-        assertEquals(userUpdateRequest.email(), user.getEmail());
-        assertEquals(userUpdateRequest.firstName(), user.getFirstName());
-        assertEquals(userUpdateRequest.lastName(), user.getLastName());
-        assertEquals(userUpdateRequest.birthday(), user.getBirthday());
-        assertEquals(userUpdateRequest.country(), user.getAddress().getCountry());
-        assertEquals(userUpdateRequest.city(), user.getAddress().getCity());
-        assertEquals(userUpdateRequest.street(), user.getAddress().getStreet());
-        assertEquals(userUpdateRequest.houseNumber(), user.getAddress().getHouseNumber());
-        assertEquals(userUpdateRequest.apartmentNumber(), user.getAddress().getApartmentNumber());
-        assertEquals(userUpdateRequest.phone(), user.getPhone());
-
-        verify(userRepository, times(1)).save(user);
-    }
-
-    @Test
-    public void testUpdate_UserNotFound() {
-        Long userId = 1L;
-
-        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
-                .email("new-email@example.com")
-                .firstName("NewFirstName")
-                .lastName("NewLastName")
-                .birthday(LocalDate.of(2000, 1, 1))
-                .country("USA")
-                .city("New York")
-                .street("Main St")
-                .houseNumber(2L)
-                .apartmentNumber(2L)
-                .phone("+1234567890")
-                .build();
-
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
-
-        assertThrows(UserNotFoundException.class, () -> userService.updateUser(userId, userUpdateRequest));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testUpdateUser_WithUserUpdateRequestIsNull() {
-        Long userId = 1L;
-
-
-        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, null));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testUpdateUser_WithInvalidEmail() {
-        Long userId = 1L;
-
-        UserUpdateRequest userCreateRequest = UserUpdateRequest.builder()
-                .email("johndoe")
-                .firstName("John")
-                .lastName("Doe")
-                .birthday(LocalDate.of(1999, 2, 22))
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-
-        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, userCreateRequest));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testUpdateUser_firstNameIsNull() {
-        Long userId = 1L;
-
-        UserUpdateRequest userCreateRequest = UserUpdateRequest.builder()
-                .email("johndoe@domain.com")
-                .firstName(null)
-                .lastName("Doe")
-                .birthday(LocalDate.now().minusYears(17))
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-
-        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, userCreateRequest));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testUpdateUser_lastNameIsNull() {
-        Long userId = 1L;
-
-        UserUpdateRequest userCreateRequest = UserUpdateRequest.builder()
-                .email("johndoe@domain.com")
-                .firstName("John")
-                .lastName(null)
-                .birthday(LocalDate.now().minusYears(17))
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-
-        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, userCreateRequest));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testUpdateUser_birthdayIsNull() {
-        Long userId = 1L;
-
-        UserUpdateRequest userCreateRequest = UserUpdateRequest.builder()
-                .email("johndoe@domain.com")
-                .firstName("John")
-                .lastName("Doe")
-                .birthday(null)
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-
-        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, userCreateRequest));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public void testUpdateUser_IsNotAdult() {
-        Long userId = 1L;
-
-        UserUpdateRequest userCreateRequest = UserUpdateRequest.builder()
-                .email("johndoe@domain.com")
-                .firstName("John")
-                .lastName("Doe")
-                .birthday(LocalDate.now().minusYears(17))
-                .country("Ukraine")
-                .city("Kyiv")
-                .street("Shevchenka")
-                .houseNumber(23L)
-                .apartmentNumber(22L)
-                .phone("+380765432105")
-                .build();
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userProperties.getUserEmailRegex()).thenReturn("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-        when(userProperties.getUserMinAge()).thenReturn(18);
-
-        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, userCreateRequest));
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    public  void testDeleteUser() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
-
-        String actualResponse = userService.deleteUser(user.getId());
-
-        assertEquals("User was deleted successfully", actualResponse);
-
-        verify(userRepository).findById(user.getId());
-        verify(userRepository).deleteById(user.getId());
-    }
-
-    @Test
-    public  void testDeleteUser_UserNotFound() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
-
-        String actualResponse = userService.deleteUser(user.getId());
-
-        assertEquals("User was deleted successfully", actualResponse);
-
-        verify(userRepository).findById(user.getId());
-        verify(userRepository).deleteById(user.getId());
-    }
-
-    @Test
-    public void testGetUsersByAgeRange_ValidRange() {
-        int from = 19;
-        int to = 30;
-
-        List<User> mockUsers = new ArrayList<>();
-        mockUsers.add(User.builder().id(1L).birthday(LocalDate.now().minusYears(31)).build());
-        mockUsers.add(User.builder().id(2L).birthday(LocalDate.now().minusYears(30)).build());
-        mockUsers.add(User.builder().id(3L).birthday(LocalDate.now().minusYears(22)).build());
-        mockUsers.add(User.builder().id(4L).birthday(LocalDate.now().minusYears(35)).build());
-        mockUsers.add(User.builder().id(5L).birthday(LocalDate.now().minusYears(18)).build());
-        mockUsers.add(User.builder().id(6L).birthday(LocalDate.now().minusYears(19)).build());
-
-        when(userRepository.findAll()).thenReturn(mockUsers);
-
-        List<User> usersInAgeRange = userService.getUsersByAgeRange(from, to);
-
-        assertEquals(3, usersInAgeRange.size());
-        assertEquals(2L, usersInAgeRange.get(0).getId());
-        assertEquals(3L, usersInAgeRange.get(1).getId());
-        assertEquals(6L, usersInAgeRange.get(2).getId());
-    }
-
-    @Test
-    public void testGetUsersByAgeRange_InvalidRange() {
-        int from = 30;
-        int to = 18;
-
-        assertThrows(BadRequestException.class, () -> userService.getUsersByAgeRange(from, to));
-        verify(userRepository, never()).findAll();
-    }
-
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.advice.exceptions.UserNotFoundException;
+import com.clearsolutions.users.user.cache.AgeRangeCache;
+import com.clearsolutions.users.user.cache.UserCache;
+import com.clearsolutions.users.user.cache.UserTableVersion;
+import com.clearsolutions.users.user.index.BirthdayIndex;
+import com.clearsolutions.users.user.index.UserSearchIndex;
+import com.clearsolutions.users.user.model.entity.Address;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.properties.UserProperties;
+import com.clearsolutions.users.user.model.properties.UserShardingProperties;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.model.response.UserImportError;
+import com.clearsolutions.users.user.model.response.UserImportResult;
+import com.clearsolutions.users.user.model.response.UserPage;
+import com.clearsolutions.users.user.outbox.UserChangeOutbox;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserCursor;
+import com.clearsolutions.users.user.service.UserService;
+import com.clearsolutions.users.user.shard.UserDirectory;
+import com.clearsolutions.users.user.shard.UserShards;
+import com.clearsolutions.users.user.validator.UserValidator;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@AutoConfigureMockMvc(addFilters = false)
+public class UserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private AgeRangeCache ageRangeCache;
+
+    @Mock
+    private BirthdayIndex birthdayIndex;
+
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
+    @Mock
+    private UserChangeOutbox userChangeOutbox;
+
+    @Mock
+    private UserDirectory userDirectory;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private UserShards userShards = new UserShards(new UserShardingProperties());
+
+    @Spy
+    private UserTableVersion userTableVersion = new UserTableVersion();
+
+    @Spy
+    private UserValidator userValidator = new UserValidator(userProperties());
+
+    @InjectMocks
+    private UserService userService;
+
+    private User user;
+
+    private static UserProperties userProperties() {
+        UserProperties userProperties = new UserProperties();
+        userProperties.setUserEmailRegex("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+        userProperties.setUserMinAge(18);
+        return userProperties;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        Address address = Address.builder()
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .build();
+
+        user = User.builder()
+                .id(1L)
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .address(address)
+                .phone("+380765432105")
+                .build();
+    }
+
+    @Test
+    public void testCreateUser() {
+        UserCreateRequest userCreateRequest = UserCreateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+
+        String result = userService.createUser(userCreateRequest);
+
+        assertEquals("User was created successfully", result);
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verify(userChangeOutbox).created(any());
+    }
+
+    @Test
+    public void testCreateUser_WithEmailTaken() {
+        UserCreateRequest userCreateRequest = UserCreateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Unique index or primary key violation", new SQLException(), "PUBLIC.UK_USERS_EMAIL_INDEX_4 ON PUBLIC.USERS(EMAIL)")));
+
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest));
+        assertEquals("Invalid email!", exception.getMessage());
+    }
+
+    @Test
+    public void testCreateUser_NormalizesEmail() {
+        UserCreateRequest userCreateRequest = UserCreateRequest.builder()
+                .email("JohnDoe@Domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+
+
+        userService.createUser(userCreateRequest);
+
+        verify(userRepository).saveAndFlush(argThat(saved -> "johndoe@domain.com".equals(saved.getEmail())));
+    }
+
+    @Test
+    public void testCreateUser_WithUserCreateRequestIsNull() {
+        assertThrows(BadRequestException.class, () -> userService.createUser(null));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    public void testCreateUser_WithInvalidEmail() {
+        UserCreateRequest userCreateRequest = UserCreateRequest.builder()
+                .email("johndoe")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+
+
+        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    public void testCreateUser_firstNameIsNull() {
+        UserCreateRequest userCreateRequest1 = UserCreateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName(null)
+                .lastName("Doe")
+                .birthday(LocalDate.now().minusYears(17))
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest1));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    public void testCreateUser_lastNameIsNull() {
+        UserCreateRequest userCreateRequest1 = UserCreateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName(null)
+                .birthday(LocalDate.now().minusYears(17))
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest1));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    public void testCreateUser_birthdayIsNull() {
+        UserCreateRequest userCreateRequest1 = UserCreateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(null)
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest1));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    public void testCreateUser_IsNotAdult() {
+        UserCreateRequest userCreateRequest1 = UserCreateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.now().minusYears(17))
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+        assertThrows(BadRequestException.class, () -> userService.createUser(userCreateRequest1));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    public void testUpdateUser() {
+        Long userId = 1L;
+
+        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
+                .email("new-email@example.com")
+                .firstName("NewFirstName")
+                .lastName("NewLastName")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .country("USA")
+                .city("New York")
+                .street("Main St")
+                .houseNumber(2L)
+                .apartmentNumber(2L)
+                .phone("+1234567890")
+                .build();
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.saveAndFlush(user)).thenReturn(user);
+
+        String result = userService.updateUser(userId, userUpdateRequest);
+
+        assertEquals("User was updated successfully", result);
+        assertEquals(userUpdateRequest.email(), user.getEmail());
+        assertEquals(userUpdateRequest.firstName(), user.getFirstName());
+        assertEquals(userUpdateRequest.lastName(), user.getLastName());
+        assertEquals(userUpdateRequest.birthday(), user.getBirthday());
+        assertEquals(userUpdateRequest.country(), user.getAddress().getCountry());
+        assertEquals(userUpdateRequest.city(), user.getAddress().getCity());
+        assertEquals(userUpdateRequest.street(), user.getAddress().getStreet());
+        assertEquals(userUpdateRequest.houseNumber(), user.getAddress().getHouseNumber());
+        assertEquals(userUpdateRequest.apartmentNumber(), user.getAddress().getApartmentNumber());
+        assertEquals(userUpdateRequest.phone(), user.getPhone());
+
+        verify(userRepository, times(1)).saveAndFlush(user);
+    }
+
+    @Test
+    public void testUpdateUser_KeepsOwnEmail() {
+        Long userId = 1L;
+
+        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
+                .email(user.getEmail())
+                .firstName("NewFirstName")
+                .lastName("NewLastName")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.saveAndFlush(user)).thenReturn(user);
+
+        assertEquals("User was updated successfully", userService.updateUser(userId, userUpdateRequest));
+        verify(userRepository, times(1)).saveAndFlush(user);
+    }
+
+    @Test
+    public void testUpdate_UserNotFound() {
+        Long userId = 1L;
+
+        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
+                .email("new-email@example.com")
+                .firstName("NewFirstName")
+                .lastName("NewLastName")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .country("USA")
+                .city("New York")
+                .street("Main St")
+                .houseNumber(2L)
+                .apartmentNumber(2L)
+                .phone("+1234567890")
+                .build();
+
+        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.updateUser(userId, userUpdateRequest));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    public void testUpdateUser_WithUserUpdateRequestIsNull() {
+        Long userId = 1L;
+
+
+        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, null));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    public void testUpdateUser_WithInvalidEmail() {
+        Long userId = 1L;
+
+        UserUpdateRequest userCreateRequest = UserUpdateRequest.builder()
+                .email("johndoe")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, userCreateRequest));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+        verify(userRepository, never()).updateFields(anyLong(), anyMap());
+    }
+
+    @Test
+    public void testUpdateUser_firstNameIsNull() {
+        Long userId = 1L;
+
+        UserUpdateRequest userCreateRequest = UserUpdateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName(null)
+                .lastName("Doe")
+                .birthday(LocalDate.now().minusYears(17))
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, userCreateRequest));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+        verify(userRepository, never()).updateFields(anyLong(), anyMap());
+    }
+
+    @Test
+    public void testUpdateUser_lastNameIsNull() {
+        Long userId = 1L;
+
+        UserUpdateRequest userCreateRequest = UserUpdateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName(null)
+                .birthday(LocalDate.now().minusYears(17))
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, userCreateRequest));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+        verify(userRepository, never()).updateFields(anyLong(), anyMap());
+    }
+
+    @Test
+    public void testUpdateUser_OnlySuppliedFields() {
+        Long userId = 1L;
+
+        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
+                .city("Lviv")
+                .phone("+380501234567")
+                .build();
+
+        when(userRepository.updateFields(userId, Map.of("phone", "+380501234567", "address.city", "Lviv"))).thenReturn(1);
+
+        assertEquals("User was updated successfully", userService.updateUser(userId, userUpdateRequest));
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+        verify(userCache).evict(userId);
+        verify(ageRangeCache).patch(eq(userId), any());
+        verify(userChangeOutbox).updated(eq(userId), argThat(patch -> patch.getEmail() == null
+                && "+380501234567".equals(patch.getPhone()) && "Lviv".equals(patch.getAddress().getCity())));
+    }
+
+    @Test
+    public void testUpdateUser_OnlySuppliedFields_UserNotFound() {
+        Long userId = 1L;
+
+        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
+                .phone("+380501234567")
+                .build();
+
+        when(userRepository.updateFields(userId, Map.of("phone", "+380501234567"))).thenReturn(0);
+
+        assertThrows(UserNotFoundException.class, () -> userService.updateUser(userId, userUpdateRequest));
+        verify(userCache, never()).evict(anyLong());
+        verify(userChangeOutbox, never()).updated(anyLong(), any());
+    }
+
+    @Test
+    public void testUpdateUser_EmptyNameIsInvalid() {
+        Long userId = 1L;
+
+        UserUpdateRequest userUpdateRequest = UserUpdateRequest.builder()
+                .firstName("")
+                .build();
+
+        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, userUpdateRequest));
+        verify(userRepository, never()).updateFields(anyLong(), anyMap());
+    }
+
+    @Test
+    public void testUpdateUser_IsNotAdult() {
+        Long userId = 1L;
+
+        UserUpdateRequest userCreateRequest = UserUpdateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.now().minusYears(17))
+                .country("Ukraine")
+                .city("Kyiv")
+                .street("Shevchenka")
+                .houseNumber(23L)
+                .apartmentNumber(22L)
+                .phone("+380765432105")
+                .build();
+
+        assertThrows(BadRequestException.class, () -> userService.updateUser(userId, userCreateRequest));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+        verify(userRepository, never()).updateFields(anyLong(), anyMap());
+    }
+
+    @Test
+    public  void testDeleteUser() {
+        when(userRepository.deleteUserById(anyLong())).thenReturn(1);
+
+        String actualResponse = userService.deleteUser(user.getId());
+
+        assertEquals("User was deleted successfully", actualResponse);
+
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository).deleteUserById(user.getId());
+        verify(userCache).evict(user.getId());
+        verify(userChangeOutbox).deleted(user.getId());
+    }
+
+    @Test
+    public  void testDeleteUser_UserNotFound() {
+        when(userRepository.deleteUserById(anyLong())).thenReturn(0);
+
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(user.getId()));
+
+        verify(userCache, never()).evict(anyLong());
+    }
+
+    @Test
+    public void testGetUser() {
+        when(userCache.findById(1L)).thenReturn(Optional.of(user));
+
+        assertSame(user, userService.getUser(1L));
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testGetUserByEmail_NormalizesEmail() {
+        when(userCache.findByEmail("johndoe@domain.com")).thenReturn(Optional.of(user));
+
+        assertSame(user, userService.getUserByEmail("JohnDoe@Domain.com"));
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_ValidRange() {
+        int from = 19;
+        int to = 30;
+
+        LocalDate today = LocalDate.now();
+
+        List<User> mockUsers = new ArrayList<>();
+        mockUsers.add(User.builder().id(2L).birthday(today.minusYears(30)).build());
+        mockUsers.add(User.builder().id(3L).birthday(today.minusYears(22)).build());
+        mockUsers.add(User.builder().id(6L).birthday(today.minusYears(19)).build());
+
+        when(ageRangeCache.find(from, to)).thenReturn(mockUsers);
+
+        List<User> usersInAgeRange = userService.getUsersByAgeRange(from, to);
+
+        assertEquals(3, usersInAgeRange.size());
+        assertEquals(2L, usersInAgeRange.get(0).getId());
+        assertEquals(3L, usersInAgeRange.get(1).getId());
+        assertEquals(6L, usersInAgeRange.get(2).getId());
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_InvalidRange() {
+        int from = 30;
+        int to = 18;
+
+        assertThrows(BadRequestException.class, () -> userService.getUsersByAgeRange(from, to));
+        verify(ageRangeCache, never()).find(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testGetUsersPageByAgeRange_FirstPage() {
+        LocalDate birthday = LocalDate.of(1990, 5, 5);
+
+        List<User> mockUsers = new ArrayList<>();
+        mockUsers.add(User.builder().id(1L).birthday(birthday).build());
+        mockUsers.add(User.builder().id(2L).birthday(birthday).build());
+        mockUsers.add(User.builder().id(3L).birthday(birthday).build());
+
+        when(userRepository.findAllByBirthdayBetweenOrderByBirthdayAscIdAsc(any(), any(), eq(PageRequest.of(0, 3))))
+                .thenReturn(mockUsers);
+
+        UserPage page = userService.getUsersPageByAgeRange(18, 122, null, 2);
+
+        assertEquals(2, page.users().size());
+        assertEquals(new UserCursor(birthday, 2L), UserCursor.decode(page.nextCursor()));
+    }
+
+    @Test
+    public void testGetUsersPageByAgeRange_NextPage() {
+        LocalDate birthday = LocalDate.of(1990, 5, 5);
+        String cursor = new UserCursor(birthday, 2L).encode();
+
+        List<User> mockUsers = new ArrayList<>();
+        mockUsers.add(User.builder().id(3L).birthday(birthday).build());
+
+        when(userRepository.findPageAfter(any(), any(), eq(birthday), eq(2L), eq(PageRequest.of(0, 3))))
+                .thenReturn(mockUsers);
+
+        UserPage page = userService.getUsersPageByAgeRange(18, 122, cursor, 2);
+
+        assertEquals(1, page.users().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    public void testGetUsersPageByAgeRange_InvalidCursor() {
+        assertThrows(BadRequestException.class, () -> userService.getUsersPageByAgeRange(18, 122, "not-a-cursor", 2));
+        verify(userRepository, never()).findPageAfter(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testGetUsersPageByAgeRange_InvalidSize() {
+        assertThrows(BadRequestException.class, () -> userService.getUsersPageByAgeRange(18, 122, null, 0));
+    }
+
+    @Test
+    public void testImportUsers() {
+        UserCreateRequest valid = UserCreateRequest.builder()
+                .email("johndoe@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+        UserCreateRequest taken = UserCreateRequest.builder()
+                .email("taken@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+        UserCreateRequest invalidEmail = UserCreateRequest.builder()
+                .email("johndoe")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of("taken@domain.com"));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+        when(userRepository.saveAllAndFlush(anyCollection())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        UserImportResult result = userService.importUsers(List.of(valid, taken, invalidEmail, valid), 500);
+
+        assertEquals(1, result.created());
+        assertEquals(List.of(501L, 502L, 503L), result.errors().stream().map(UserImportError::row).toList());
+        verify(userRepository, times(1)).findExistingEmails(anyCollection());
+        verify(userRepository, times(1)).saveAllAndFlush(argThat(users -> users instanceof List<?> list && list.size() == 1));
+        verify(userChangeOutbox).created(argThat(users -> users.size() == 1));
+    }
+
+    @Test
+    public void testImportUsers_FailedPartReported() {
+        UserCreateRequest first = UserCreateRequest.builder()
+                .email("first@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+        UserCreateRequest second = UserCreateRequest.builder()
+                .email("second@domain.com")
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(LocalDate.of(1999, 2, 22))
+                .build();
+
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of());
+        when(transactionTemplate.execute(any())).thenThrow(new CannotCreateTransactionException("Database is down"));
+
+        UserImportResult result = userService.importUsers(List.of(first, second), 0);
+
+        assertEquals(0, result.created());
+        assertEquals(List.of(0L, 1L), result.errors().stream().map(UserImportError::row).toList());
+        assertEquals("User could not be created", result.errors().get(0).message());
+    }
+
+
 }
\ No newline at end of file
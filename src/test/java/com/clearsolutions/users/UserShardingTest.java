@@ -0,0 +1,330 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.advice.exceptions.BadRequestException;
+import com.clearsolutions.users.user.index.BirthdayIndex;
+import com.clearsolutions.users.user.metrics.StatementCounter;
+import com.clearsolutions.users.user.model.entity.User;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.model.response.UserChangeEvent;
+import com.clearsolutions.users.user.model.response.UserImportResult;
+import com.clearsolutions.users.user.model.response.UserPage;
+import com.clearsolutions.users.user.outbox.UserChangeOutbox;
+import com.clearsolutions.users.user.outbox.UserChangeRelay;
+import com.clearsolutions.users.user.repository.UserChangeRepository;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserCursor;
+import com.clearsolutions.users.user.service.UserService;
+import com.clearsolutions.users.user.shard.UserDirectoryReconciler;
+import com.clearsolutions.users.user.shard.UserShards;
+import net.ttddyy.dsproxy.QueryType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static com.clearsolutions.users.StatementAssertions.countStatements;
+import static com.clearsolutions.users.TestUsers.createRequest;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Three shards and the directory are separate H2 databases.
+ */
+@SpringBootTest(properties = {
+        "sharding.users.enabled=true",
+        "sharding.users.urls=jdbc:h2:mem:shard-0,jdbc:h2:mem:shard-1,jdbc:h2:mem:shard-2",
+        "sharding.users.directory-url=jdbc:h2:mem:shard-directory",
+        "validation.user-birthday-index-enabled=true"
+})
+public class UserShardingTest {
+
+    private static final int SHARDS = 3;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserShards userShards;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserChangeRepository userChangeRepository;
+
+    @Autowired
+    private UserChangeOutbox userChangeOutbox;
+
+    @Autowired
+    private UserChangeRelay userChangeRelay;
+
+    @Autowired
+    private UserDirectoryReconciler userDirectoryReconciler;
+
+    @Autowired
+    private BirthdayIndex birthdayIndex;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @AfterEach
+    public void tearDown() {
+        // through the service, so the directory and the caches forget the users too
+        allUsers().forEach(user -> userService.deleteUser(user.getId()));
+        userShards.scatter(shard -> {
+            userChangeRepository.deleteAll();
+            return null;
+        });
+    }
+
+    @Test
+    public void testCreateUser_StoredOnItsShardOnly() throws SQLException {
+        for (int i = 0; i < 30; i++) {
+            userService.createUser(createRequest("user" + i + "@domain.com", LocalDate.of(1990, 1, 1)));
+        }
+
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            Long id = userService.getUserByEmail("user" + i + "@domain.com").getId();
+            int shard = userShards.shardOf(id);
+            usedShards.add(shard);
+            for (int other = 0; other < SHARDS; other++) {
+                assertEquals(other == shard, existsOnShard(other, id), "user " + id + " on shard " + other);
+            }
+        }
+        assertEquals(SHARDS, usedShards.size());
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_MergedInBirthdayOrder() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 20; i++) {
+            userService.createUser(createRequest("user" + i + "@domain.com", today.minusYears(20 + i % 7).minusDays(i)));
+        }
+
+        List<User> users = userService.getUsersByAgeRange(18, 40);
+
+        assertEquals(20, users.size());
+        assertEquals(users.stream().sorted(UserCursor.USER_ORDER).toList(), users);
+
+        List<User> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserPage page = userService.getUsersPageByAgeRange(18, 40, cursor, 3);
+            paged.addAll(page.users());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        assertEquals(users.stream().map(User::getId).toList(), paged.stream().map(User::getId).toList());
+    }
+
+    @Test
+    public void testCreateUser_InsertedWithoutSelect() {
+        userService.createUser(createRequest("johndoe@domain.com", LocalDate.of(1990, 1, 1)));
+
+        // the id comes from the directory, yet save() inserts the user instead of selecting it for a merge
+        StatementCounter counter = countStatements(() -> userService.createUser(createRequest("janedoe@domain.com", LocalDate.of(1990, 1, 1))));
+
+        assertEquals(0, counter.count(QueryType.SELECT), counter.toString());
+        assertEquals(2, counter.count(QueryType.INSERT), counter.toString());
+    }
+
+    @Test
+    public void testRebuildBirthdayIndex_MergesShards() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 20; i++) {
+            userService.createUser(createRequest("user" + i + "@domain.com", today.minusYears(20 + i % 7).minusDays(i)));
+        }
+
+        birthdayIndex.rebuild();
+
+        List<User> users = userService.getUsersByAgeRange(18, 40);
+        assertEquals(20, users.size());
+        assertEquals(allUsers().stream().sorted(UserCursor.USER_ORDER).map(User::getId).toList(), users.stream().map(User::getId).toList());
+    }
+
+    @Test
+    public void testCreateUser_EmailUniqueAcrossShards() {
+        userService.createUser(createRequest("johndoe@domain.com", LocalDate.of(1990, 1, 1)));
+
+        // every attempt gets a new id, so some of them land on another shard than the first user
+        for (int i = 0; i < 5; i++) {
+            assertThrows(BadRequestException.class,
+                    () -> userService.createUser(createRequest("JohnDoe@domain.com", LocalDate.of(1990, 1, 1))));
+        }
+        assertEquals(1, allUsers().size());
+    }
+
+    @Test
+    public void testUpdateUser_EmailMovesInDirectory() {
+        userService.createUser(createRequest("johndoe@domain.com", LocalDate.of(1990, 1, 1)));
+        userService.createUser(createRequest("janedoe@domain.com", LocalDate.of(1990, 1, 1)));
+        Long johnId = userService.getUserByEmail("johndoe@domain.com").getId();
+
+        assertThrows(BadRequestException.class,
+                () -> userService.updateUser(johnId, UserUpdateRequest.builder().email("janedoe@domain.com").build()));
+
+        userService.updateUser(johnId, UserUpdateRequest.builder().email("john@domain.com").build());
+        assertEquals(johnId, userService.getUserByEmail("john@domain.com").getId());
+
+        // the old email is free again
+        userService.createUser(createRequest("johndoe@domain.com", LocalDate.of(1990, 1, 1)));
+        assertEquals(3, allUsers().size());
+    }
+
+    @Test
+    public void testImportUsers_SplitsChunkByShard() throws SQLException {
+        userService.createUser(createRequest("taken@domain.com", LocalDate.of(1990, 1, 1)));
+
+        List<UserCreateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            requests.add(createRequest("user" + i + "@domain.com", LocalDate.of(1990, 1, 1)));
+        }
+        requests.add(createRequest("taken@domain.com", LocalDate.of(1990, 1, 1)));
+
+        UserImportResult result = userService.importUsers(requests, 0);
+
+        assertEquals(12, result.created());
+        assertEquals(List.of(12L), result.errors().stream().map(error -> error.row()).toList());
+        for (User user : allUsers()) {
+            assertTrue(existsOnShard(userShards.shardOf(user.getId()), user.getId()));
+        }
+    }
+
+    @Test
+    public void testGetChanges_NumberedAcrossShards() {
+        for (int i = 0; i < 6; i++) {
+            userService.createUser(createRequest("user" + i + "@domain.com", LocalDate.of(1990, 1, 1)));
+        }
+        userChangeRelay.relay();
+
+        List<Long> sequences = userChangeOutbox.getChanges(0, 100).changes().stream().map(UserChangeEvent::sequence).toList();
+        assertEquals(LongStream.rangeClosed(1, 6).boxed().toList(), sequences);
+        assertEquals(List.of(5L, 6L), userChangeOutbox.getChanges(4, 100).changes().stream().map(UserChangeEvent::sequence).toList());
+    }
+
+    @Test
+    public void testRelay_WaitsForRelayOfAnotherInstance() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            userService.createUser(createRequest("user" + i + "@domain.com", LocalDate.of(1990, 1, 1)));
+        }
+
+        CompletableFuture<Void> relay;
+        try (Connection otherInstance = directoryConnection()) {
+            otherInstance.setAutoCommit(false);
+            otherInstance.createStatement().executeQuery("select id from user_change_relay_lock where id = 1 for update").close();
+            relay = CompletableFuture.runAsync(userChangeRelay::relay);
+            Thread.sleep(300);
+
+            assertTrue(userChangeOutbox.getChanges(0, 100).changes().isEmpty());
+            otherInstance.commit();
+        }
+        relay.get(30, TimeUnit.SECONDS);
+        userChangeRelay.relay();
+
+        List<Long> sequences = userChangeOutbox.getChanges(0, 100).changes().stream().map(UserChangeEvent::sequence).toList();
+        assertEquals(LongStream.rangeClosed(1, 6).boxed().toList(), sequences);
+    }
+
+    @Test
+    public void testGetChanges_IdsUniqueOnEveryShard() {
+        // several blocks of ids, taken while bound to different shards
+        List<UserCreateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            requests.add(createRequest("user" + i + "@domain.com", LocalDate.of(1990, 1, 1)));
+        }
+        assertEquals(150, userService.importUsers(requests, 0).created());
+        for (User user : allUsers()) {
+            userService.updateUser(user.getId(), UserUpdateRequest.builder().phone("+380501234567").build());
+        }
+        userChangeRelay.relay();
+
+        List<UserChangeEvent> changes = userChangeOutbox.getChanges(0, 1000).changes();
+        assertEquals(LongStream.rangeClosed(1, 300).boxed().toList(), changes.stream().map(UserChangeEvent::sequence).toList());
+    }
+
+    @Test
+    public void testReconcile_SettlesEmailsLeftPending() throws SQLException {
+        userService.createUser(createRequest("johndoe@domain.com", LocalDate.of(1990, 1, 1)));
+        userService.createUser(createRequest("janedoe@domain.com", LocalDate.of(1990, 1, 1)));
+        Long johnId = userService.getUserByEmail("johndoe@domain.com").getId();
+        Long janeId = userService.getUserByEmail("janedoe@domain.com").getId();
+        userService.updateUser(janeId, UserUpdateRequest.builder().email("jane@domain.com").build());
+        assertEquals(0, countPendingEmails());
+
+        // left pending by a stop between the directory and the shard: a create that never committed,
+        // a create that committed but was not confirmed, and an email change whose release was lost
+        Timestamp stale = Timestamp.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        updateDirectory("insert into user_emails (email, user_id, pending, pending_since) values ('ghost@domain.com', -1, true, ?)", stale);
+        updateDirectory("update user_emails set pending = true, pending_since = ? where user_id = " + johnId, stale);
+        updateDirectory("insert into user_emails (email, user_id, pending, pending_since) values ('janedoe@domain.com', " + janeId + ", true, ?)", stale);
+        assertThrows(BadRequestException.class,
+                () -> userService.createUser(createRequest("ghost@domain.com", LocalDate.of(1990, 1, 1))));
+
+        assertEquals(3, userDirectoryReconciler.reconcile());
+
+        assertEquals(0, countPendingEmails());
+        assertThrows(BadRequestException.class,
+                () -> userService.createUser(createRequest("johndoe@domain.com", LocalDate.of(1990, 1, 1))));
+        userService.createUser(createRequest("ghost@domain.com", LocalDate.of(1990, 1, 1)));
+        userService.createUser(createRequest("janedoe@domain.com", LocalDate.of(1990, 1, 1)));
+        assertEquals(4, allUsers().size());
+    }
+
+    private List<User> allUsers() {
+        List<User> users = new ArrayList<>();
+        userShards.scatter(shard -> userRepository.findAll()).forEach(users::addAll);
+        return users;
+    }
+
+    private boolean existsOnShard(int shard, Long id) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:shard-" + shard,
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+             PreparedStatement statement = connection.prepareStatement("select count(*) from users where id = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet count = statement.executeQuery()) {
+                count.next();
+                return count.getLong(1) == 1;
+            }
+        }
+    }
+
+    private Connection directoryConnection() throws SQLException {
+        return DriverManager.getConnection("jdbc:h2:mem:shard-directory",
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    private void updateDirectory(String sql, Timestamp pendingSince) throws SQLException {
+        try (Connection connection = directoryConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setTimestamp(1, pendingSince);
+            statement.executeUpdate();
+        }
+    }
+
+    private long countPendingEmails() throws SQLException {
+        try (Connection connection = directoryConnection();
+             PreparedStatement statement = connection.prepareStatement("select count(*) from user_emails where pending");
+             ResultSet count = statement.executeQuery()) {
+            count.next();
+            return count.getLong(1);
+        }
+    }
+}
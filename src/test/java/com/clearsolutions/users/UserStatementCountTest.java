@@ -0,0 +1,139 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.metrics.StatementCounter;
+import com.clearsolutions.users.user.metrics.StatementListener;
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.model.request.UserUpdateRequest;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.clearsolutions.users.StatementAssertions.assertStatements;
+import static com.clearsolutions.users.StatementAssertions.countStatements;
+import static com.clearsolutions.users.TestUsers.createRequest;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserStatementCountTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testCreateUser_OneInsert() {
+        StatementCounter counter = countStatements(() -> userService.createUser(createRequest("johndoe@domain.com", aged(30))));
+
+        // the user and its change event
+        assertEquals(2, counter.count(QueryType.INSERT));
+        // at most one sequence call per table, the pooled optimizer hands out 50 ids per call
+        assertTrue(counter.total() <= 4, counter.toString());
+    }
+
+    @Test
+    public void testGetUser_CachedAfterFirstRead() {
+        userService.createUser(createRequest("johndoe@domain.com", aged(30)));
+        Long userId = userRepository.findByEmail("johndoe@domain.com").orElseThrow().getId();
+
+        assertStatements(1, () -> userService.getUser(userId));
+        assertStatements(0, () -> userService.getUser(userId));
+    }
+
+    @Test
+    public void testUpdateUser_OneUpdateWithoutBirthday() {
+        userService.createUser(createRequest("johndoe@domain.com", aged(30)));
+        Long userId = userRepository.findByEmail("johndoe@domain.com").orElseThrow().getId();
+
+        // each with the insert of its change event
+        assertStatements(2, () -> userService.updateUser(userId, UserUpdateRequest.builder().phone("+380501234567").build()));
+        assertStatements(3, () -> userService.updateUser(userId, UserUpdateRequest.builder().birthday(LocalDate.of(1990, 1, 1)).build()));
+    }
+
+    @Test
+    public void testDeleteUser_OneDelete() {
+        userService.createUser(createRequest("johndoe@domain.com", aged(30)));
+        Long userId = userRepository.findByEmail("johndoe@domain.com").orElseThrow().getId();
+
+        StatementCounter counter = countStatements(() -> userService.deleteUser(userId));
+
+        assertEquals(1, counter.count(QueryType.DELETE));
+        assertEquals(1, counter.count(QueryType.INSERT));
+        assertEquals(2, counter.total(), counter.toString());
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_OneRangeQueryThenCached() {
+        userService.createUser(createRequest("johndoe@domain.com", aged(50)));
+
+        assertStatements(1, () -> assertEquals(1, userService.getUsersByAgeRange(50, 51).size()));
+        assertStatements(0, () -> userService.getUsersByAgeRange(50, 51));
+    }
+
+    @Test
+    public void testImportUsers_BatchedInserts() {
+        List<UserCreateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            requests.add(createRequest("user" + i + "@domain.com", aged(30)));
+        }
+
+        StatementCounter counter = countStatements(() -> userService.importUsers(requests, 0));
+
+        // two JDBC batches of 50 users and two of their change events, one lookup of taken emails and the sequence calls
+        assertEquals(4, counter.count(QueryType.INSERT));
+        assertTrue(counter.count(QueryType.SELECT) <= 6, counter.toString());
+        assertEquals(100, userRepository.count());
+    }
+
+    @Test
+    public void testHttpRequest_StatementsRecordedPerUri() throws Exception {
+        userService.createUser(createRequest("johndoe@domain.com", aged(30)));
+        Long userId = userRepository.findByEmail("johndoe@domain.com").orElseThrow().getId();
+
+        mockMvc.perform(get("/users/{user-id}", userId)).andExpect(status().isOk());
+
+        assertTrue(meterRegistry.get("http.server.requests.statements").tag("uri", "/users/{user-id}").summary().count() >= 1);
+    }
+
+    @Test
+    public void testAfterQuery_WithoutQueryInfo() {
+        StatementListener listener = new StatementListener(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), Duration.ZERO);
+
+        StatementCounter counter = countStatements(() -> listener.afterQuery(new ExecutionInfo(), List.of()));
+
+        assertEquals(1, counter.count(QueryType.OTHER));
+    }
+
+    private static LocalDate aged(int years) {
+        return LocalDate.now().minusYears(years).minusDays(1);
+    }
+}
@@ -0,0 +1,44 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.model.properties.UserProperties;
+import com.clearsolutions.users.user.validator.UserValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserValidatorTest {
+
+    private UserValidator userValidator;
+
+    @BeforeEach
+    public void setUp() {
+        UserProperties userProperties = new UserProperties();
+        userProperties.setUserEmailRegex("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+        userProperties.setUserMinAge(18);
+
+        userValidator = new UserValidator(userProperties);
+    }
+
+    @Test
+    public void testValidate_ValidUser() {
+        assertTrue(userValidator.validate("johndoe@domain.com", "John", "Doe", LocalDate.of(1999, 2, 22)).isEmpty());
+    }
+
+    @Test
+    public void testValidate_CollectsAllErrors() {
+        List<String> errors = userValidator.validate("johndoe", null, "", LocalDate.now().minusYears(17));
+
+        assertEquals(List.of("Invalid email!", "First name cannot be null!", "Last name cannot be null!", "User must be 18!"), errors);
+    }
+
+    @Test
+    public void testValidate_MinAgeBoundary() {
+        assertTrue(userValidator.validate("johndoe@domain.com", "John", "Doe", LocalDate.now().minusYears(18)).isEmpty());
+        assertEquals(List.of("User must be 18!"),
+                userValidator.validate("johndoe@domain.com", "John", "Doe", LocalDate.now().minusYears(18).plusDays(1)));
+    }
+}
@@ -0,0 +1,106 @@
+package com.clearsolutions.users;
+
+import com.clearsolutions.users.user.model.request.UserCreateRequest;
+import com.clearsolutions.users.user.repository.UserRepository;
+import com.clearsolutions.users.user.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserViewTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_OnlyRequestedFields() throws Exception {
+        createUser("johndoe@domain.com", LocalDate.of(1990, 5, 17));
+
+        mockMvc.perform(get("/users").param("from", "18").param("to", "60").param("fields", "id,email,birthday"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").isNumber())
+                .andExpect(jsonPath("$[0].email").value("johndoe@domain.com"))
+                .andExpect(jsonPath("$[0].birthday").value("17-05-1990"))
+                .andExpect(jsonPath("$[0].first_name").doesNotExist())
+                .andExpect(jsonPath("$[0].address").doesNotExist())
+                .andExpect(jsonPath("$[0].phone").doesNotExist());
+
+        mockMvc.perform(get("/users").param("fields", "first_name,address"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].first_name").value("John"))
+                .andExpect(jsonPath("$[0].address.city").value("Kyiv"))
+                .andExpect(jsonPath("$[0].id").doesNotExist());
+    }
+
+    @Test
+    public void testGetUsersByAgeRange_UnknownField() throws Exception {
+        mockMvc.perform(get("/users").param("fields", "id,password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetUsersPageByAgeRange_CursorWithoutRequestedId() throws Exception {
+        createUser("first@domain.com", LocalDate.of(1990, 1, 1));
+        createUser("second@domain.com", LocalDate.of(1991, 1, 1));
+        createUser("third@domain.com", LocalDate.of(1992, 1, 1));
+
+        JsonNode first = page(null);
+        assertEquals(List.of("first@domain.com", "second@domain.com"), emails(first));
+        assertFalse(first.get("users").get(0).has("id"));
+        assertFalse(first.get("users").get(0).has("birthday"));
+
+        JsonNode second = page(first.get("next_cursor").asText());
+        assertEquals(List.of("third@domain.com"), emails(second));
+        assertFalse(second.has("next_cursor") && !second.get("next_cursor").isNull());
+    }
+
+    private JsonNode page(String cursor) throws Exception {
+        String body = mockMvc.perform(get("/users/page").param("fields", "email").param("size", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private List<String> emails(JsonNode page) {
+        return page.get("users").findValuesAsText("email");
+    }
+
+    private void createUser(String email, LocalDate birthday) {
+        userService.createUser(UserCreateRequest.builder()
+                .email(email)
+                .firstName("John")
+                .lastName("Doe")
+                .birthday(birthday)
+                .city("Kyiv")
+                .build());
+    }
+}